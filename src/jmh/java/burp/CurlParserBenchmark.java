@@ -0,0 +1,114 @@
+package burp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the curl parser over a corpus of real-world commands.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks verify}; the gc profiler reports bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}). The {@code body-*} inputs and the adversarial inputs (an unclosed
+ * quote, a million {@code -H} options, a million-character backslash run) are generated at setup
+ * rather than checked in; their throughput should stay in line with their length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CurlParserBenchmark {
+
+    private static final int MB = 1024 * 1024;
+
+    @Param({"chrome", "firefox", "safari", "postman", "ansi-c", "many-headers", "body-1mb", "body-10mb", "body-50mb",
+            "unclosed-quote", "repeated-headers", "backslash-run"})
+    public String input;
+
+    private String command;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (input) {
+            case "body-1mb":
+                command = commandWithBody(MB);
+                break;
+            case "body-10mb":
+                command = commandWithBody(10 * MB);
+                break;
+            case "body-50mb":
+                command = commandWithBody(50 * MB);
+                break;
+            case "unclosed-quote":
+                command = "curl 'https://api.example.com/' -d '" + "a".repeat(MB);
+                break;
+            case "repeated-headers":
+                command = "curl 'https://api.example.com/'" + " -H 'X-A: b'".repeat(MB);
+                break;
+            case "backslash-run":
+                command = "curl 'https://api.example.com/' -d " + "\\".repeat(MB / 2);
+                break;
+            default:
+                command = readCorpus(input);
+                break;
+        }
+    }
+
+    @Benchmark
+    public CurlParser.CurlRequest parseCurlCommand() {
+        return CurlParser.parseCurlCommand(command);
+    }
+
+    @Benchmark
+    public String extractUrl() {
+        return CurlParser.extractUrl(command);
+    }
+
+    @Benchmark
+    public List<String> extractFlagValues() {
+        return CurlParser.extractFlagValues(command, CurlParser.Flag.DATA);
+    }
+
+    private static String readCorpus(String name) throws IOException {
+        try (InputStream in = CurlParserBenchmark.class.getResourceAsStream("/corpus/" + name + ".curl")) {
+            if (in == null) {
+                throw new IOException("Missing corpus file: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A DevTools-style command carrying a JSON body of roughly {@code size} bytes.
+     */
+    private static String commandWithBody(int size) {
+        String record = "{\"id\":12345,\"name\":\"widget\",\"tags\":[\"a\",\"b\"],\"url\":\"https://cdn.example.com/x.png\"},";
+        StringBuilder sb = new StringBuilder(size + 512);
+        sb.append("curl 'https://api.example.com/v1/import' \\\n")
+                .append("  -H 'content-type: application/json' \\\n")
+                .append("  -H 'authorization: Bearer abc.def.ghi' \\\n")
+                .append("  --data-raw '[");
+        while (sb.length() < size) {
+            sb.append(record);
+        }
+        sb.setLength(sb.length() - 1);
+        sb.append("]'");
+        return sb.toString();
+    }
+}
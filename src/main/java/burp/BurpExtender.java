@@ -4,6 +4,9 @@ import burp.api.montoya.logging.Logging;
 import burp.api.montoya.BurpExtension;
 import burp.api.montoya.MontoyaApi;
 
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+
 
 /**
  * Paste cURL: A BurpSuite extension to allow pasting curl commands into a new tab in Repeater
@@ -19,11 +22,35 @@ public class BurpExtender implements BurpExtension {
     @Override
     public void initialize(MontoyaApi api) {
         this.api = api;
+        Log.setLogging(api.logging());
 
         // set extension name
         api.extension().setName(EXTENSION_NAME);
 
-        api.userInterface().registerContextMenuItemsProvider(new MenuItemsProvider(api));
+        // Only creates the history; its index is read the first time it is used
+        RequestHistory history = RequestHistory.persisted(api.persistence().extensionData());
+        MenuItemsProvider menuItemsProvider = new MenuItemsProvider(api, history);
+        api.userInterface().registerContextMenuItemsProvider(menuItemsProvider);
+
+        // Swing components, and the panel's refresh timer, are created on the EDT
+        MetricsPanel metricsPanel;
+        try {
+            MetricsPanel[] panel = new MetricsPanel[1];
+            SwingUtilities.invokeAndWait(() -> panel[0] = new MetricsPanel(menuItemsProvider.getParseCache()));
+            metricsPanel = panel[0];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating the metrics tab", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create the metrics tab", e.getCause());
+        }
+        api.userInterface().registerSuiteTab(EXTENSION_NAME, metricsPanel);
+
+        api.extension().registerUnloadingHandler(() -> {
+            menuItemsProvider.shutdown();
+            metricsPanel.stop();
+            Log.setLogging(null);
+        });
 
         instance = this;
     }
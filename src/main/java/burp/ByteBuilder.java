@@ -0,0 +1,178 @@
+package burp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that accepts both raw bytes and text, encoding text as UTF-8 as it is
+ * appended. Used to decode shell words so that {@code \xHH} escapes stay exact bytes while literal
+ * text keeps its UTF-8 form.
+ */
+final class ByteBuilder {
+
+    private byte[] bytes;
+    private int length;
+    private char pendingHighSurrogate;
+
+    ByteBuilder() {
+        this(64);
+    }
+
+    ByteBuilder(int capacity) {
+        bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    int length() {
+        return length;
+    }
+
+    void reset() {
+        length = 0;
+        pendingHighSurrogate = 0;
+    }
+
+    ByteBuilder append(int b) {
+        flushPendingSurrogate();
+        ensureCapacity(length + 1);
+        bytes[length++] = (byte) b;
+        return this;
+    }
+
+    ByteBuilder append(byte[] src, int offset, int count) {
+        flushPendingSurrogate();
+        ensureCapacity(length + count);
+        System.arraycopy(src, offset, bytes, length, count);
+        length += count;
+        return this;
+    }
+
+    ByteBuilder append(char c) {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                appendCodePoint(Character.toCodePoint(high, c));
+                return this;
+            }
+            appendCodePoint('?');
+        }
+        if (c < 0x80) {
+            ensureCapacity(length + 1);
+            bytes[length++] = (byte) c;
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else {
+            appendCodePoint(Character.isLowSurrogate(c) ? '?' : c);
+        }
+        return this;
+    }
+
+    /**
+     * Append {@code text[start, end)} encoded as UTF-8.
+     */
+    ByteBuilder append(CharSequence text, int start, int end) {
+        ensureCapacity(length + (end - start));
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80 && pendingHighSurrogate == 0) {
+                if (length == bytes.length) {
+                    ensureCapacity(length + (end - i));
+                }
+                bytes[length++] = (byte) c;
+            } else {
+                append(c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Append {@code chars[start, end)} encoded as UTF-8.
+     */
+    ByteBuilder append(char[] chars, int start, int end) {
+        ensureCapacity(length + (end - start));
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80 && pendingHighSurrogate == 0) {
+                if (length == bytes.length) {
+                    ensureCapacity(length + (end - i));
+                }
+                bytes[length++] = (byte) c;
+            } else {
+                append(c);
+            }
+        }
+        return this;
+    }
+
+    ByteBuilder appendCodePoint(int codePoint) {
+        flushPendingSurrogate();
+        ensureCapacity(length + 4);
+        if (codePoint < 0x80) {
+            bytes[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            bytes[length++] = (byte) (0xC0 | (codePoint >> 6));
+            bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            bytes[length++] = (byte) (0xE0 | (codePoint >> 12));
+            bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+            bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return this;
+    }
+
+    byte[] toByteArray() {
+        flushPendingSurrogate();
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Write the content to {@code channel} and empty the buffer. Unless {@code complete}, a dangling
+     * high surrogate is kept so a character split across two drains is still encoded correctly.
+     */
+    void drainTo(WritableByteChannel channel, boolean complete) throws IOException {
+        if (complete) {
+            flushPendingSurrogate();
+        }
+        ByteBuffer content = ByteBuffer.wrap(bytes, 0, length);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+        length = 0;
+    }
+
+    /**
+     * Copy the content into {@code dest} at {@code offset} without an intermediate array.
+     */
+    void copyInto(byte[] dest, int offset) {
+        flushPendingSurrogate();
+        System.arraycopy(bytes, 0, dest, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        flushPendingSurrogate();
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void flushPendingSurrogate() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            appendCodePoint('?');
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
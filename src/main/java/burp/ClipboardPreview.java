@@ -0,0 +1,61 @@
+package burp;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+/**
+ * Result of the speculative clipboard parse shown in the context menu: the built request, if any,
+ * the label suffix, and what it was read from so an unchanged clipboard can reuse it.
+ */
+final class ClipboardPreview {
+
+    static final String PASTE_LABEL = "Paste cURL command";
+
+    static final ClipboardPreview NONE = new ClipboardPreview(null, null, null, null);
+
+    private static final int MAX_PATH = 60;
+
+    // The clipboard contents object this preview was read from; compared by identity only
+    final Object source;
+    // Hash of the whole clipboard text, or null if it was not read completely
+    final ParseCache.Key key;
+    final HttpRequest request;
+    final String description;
+
+    ClipboardPreview(Object source, ParseCache.Key key, HttpRequest request, String description) {
+        this.source = source;
+        this.key = key;
+        this.request = request;
+        this.description = description;
+    }
+
+    /**
+     * Whether this preview was read from exactly these clipboard contents. The clipboard hands out the
+     * same object until its contents change, so a match needs no read at all; a new object may still
+     * hold the same text and is then matched by {@link #matches(ParseCache.Key)}.
+     */
+    boolean isFrom(Object contents) {
+        return source != null && source == contents;
+    }
+
+    boolean matches(ParseCache.Key textKey) {
+        return key != null && key.equals(textKey);
+    }
+
+    /**
+     * The same preview, read again from new clipboard contents holding the same text.
+     */
+    ClipboardPreview from(Object contents) {
+        return new ClipboardPreview(contents, key, request, description);
+    }
+
+    String label() {
+        return description == null ? PASTE_LABEL : PASTE_LABEL + " (" + description + ")";
+    }
+
+    static String describe(String method, String host, String path) {
+        if (path.length() > MAX_PATH) {
+            path = path.substring(0, MAX_PATH - 3) + "...";
+        }
+        return method + " " + host + path;
+    }
+}
@@ -0,0 +1,241 @@
+package burp;
+
+import java.awt.datatransfer.DataFlavor;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looks at the start of the clipboard before it is transferred in full.
+ * <p>
+ * Only the first {@link #SNIFF_CHARS} characters are read to decide whether the clipboard holds a
+ * curl command, so a large log dump or other text is rejected without being loaded. Text that passes
+ * is read on through {@link #rest()}, which fails with an {@link IOException} once the clipboard
+ * exceeds {@link #getMaxChars()} instead of running out of memory. The limit defaults to 128M
+ * characters and can be changed with the {@code pastecurl.maxClipboardChars} system property.
+ */
+final class ClipboardSniffer {
+
+    static final int SNIFF_CHARS = 64 * 1024;
+    static final long DEFAULT_MAX_CHARS = 128L * 1024 * 1024;
+
+    private static volatile long maxChars = Long.getLong("pastecurl.maxClipboardChars", DEFAULT_MAX_CHARS);
+
+    private final Reader reader;
+    private final char[] prefix;
+    private final int prefixLength;
+    private final boolean complete;
+    private volatile boolean exceededLimit;
+
+    /**
+     * Read the prefix of {@code reader}; the rest is only read through {@link #rest()}.
+     */
+    ClipboardSniffer(Reader reader) throws IOException {
+        this(reader, SNIFF_CHARS);
+    }
+
+    ClipboardSniffer(Reader reader, int sniffChars) throws IOException {
+        this.reader = reader;
+        this.prefix = new char[sniffChars];
+        int length = 0;
+        int read = 0;
+        while (length < prefix.length && (read = reader.read(prefix, length, prefix.length - length)) != -1) {
+            length += read;
+        }
+        this.prefixLength = length;
+        // A clipboard that exactly fills the prefix counts as incomplete, which only costs a read
+        this.complete = read == -1;
+    }
+
+    static long getMaxChars() {
+        return maxChars;
+    }
+
+    static void setMaxChars(long max) {
+        maxChars = max;
+    }
+
+    /**
+     * Whether the whole clipboard fitted in the prefix.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    boolean isBlank() {
+        for (int i = 0; i < prefixLength; i++) {
+            if (!Character.isWhitespace(prefix[i])) {
+                return false;
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Whether the prefix holds a {@code curl} word and an http(s) URL. When the clipboard continues
+     * past the prefix the URL may come later, so only the {@code curl} word is required then.
+     */
+    boolean looksLikeCurl() {
+        return containsCurlWord(prefix, prefixLength) && (!complete || containsHttpUrl(prefix, prefixLength));
+    }
+
+    /**
+     * The whole clipboard text, prefix included, limited to {@link #getMaxChars()}.
+     */
+    Reader rest() {
+        return new LimitedReader(prefix, prefixLength, reader, maxChars);
+    }
+
+    /**
+     * Whether reading through {@link #rest()} stopped at the size limit. The parser turns read errors
+     * into a null result, so callers check this to tell the user why.
+     */
+    boolean exceededLimit() {
+        return exceededLimit;
+    }
+
+    static String limitMessage() {
+        return "Clipboard content is larger than the limit of " + maxChars
+                + " characters (pastecurl.maxClipboardChars)";
+    }
+
+    /**
+     * The whole clipboard as a string, for the paths that need all of it at once.
+     *
+     * @throws IOException if the clipboard is larger than {@link #getMaxChars()}
+     */
+    String readAll() throws IOException {
+        if (complete) {
+            return new String(prefix, 0, prefixLength);
+        }
+        StringBuilder text = new StringBuilder(prefixLength * 2);
+        char[] chunk = new char[8192];
+        try (Reader all = rest()) {
+            int read;
+            while ((read = all.read(chunk, 0, chunk.length)) != -1) {
+                text.append(chunk, 0, read);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * The best {@code text/plain} flavor on offer, falling back to {@link DataFlavor#stringFlavor}.
+     * Browsers, wikis and bug trackers also offer {@code text/html} or {@code text/rtf}, which
+     * {@link DataFlavor#selectBestTextFlavor} ranks higher but which would hand the parser markup and
+     * entities instead of the command. Returns null if the clipboard holds no plain text.
+     */
+    static DataFlavor plainTextFlavor(DataFlavor[] flavors) {
+        List<DataFlavor> plain = new ArrayList<>();
+        boolean string = false;
+        for (DataFlavor flavor : flavors) {
+            if (flavor.isMimeTypeEqual("text/plain")) {
+                plain.add(flavor);
+            } else if (flavor.equals(DataFlavor.stringFlavor)) {
+                string = true;
+            }
+        }
+        DataFlavor best = DataFlavor.selectBestTextFlavor(plain.toArray(new DataFlavor[0]));
+        if (best != null) {
+            return best;
+        }
+        return string ? DataFlavor.stringFlavor : null;
+    }
+
+    static boolean containsCurlWord(char[] text, int length) {
+        for (int i = indexOfIgnoreCase(text, 0, length, "curl"); i >= 0; i = indexOfIgnoreCase(text, i + 1, length, "curl")) {
+            boolean startsWord = i == 0 || isWordBoundary(text[i - 1]) || text[i - 1] == '/' || text[i - 1] == '\\';
+            int end = i + 4;
+            boolean endsWord = end == length || isWordBoundary(text[end])
+                    || regionMatches(text, end, length, ".exe");
+            if (startsWord && endsWord) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean containsHttpUrl(char[] text, int length) {
+        for (int i = indexOfIgnoreCase(text, 0, length, "http"); i >= 0; i = indexOfIgnoreCase(text, i + 1, length, "http")) {
+            if (regionMatches(text, i + 4, length, "://") || regionMatches(text, i + 4, length, "s://")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordBoundary(char c) {
+        return Character.isWhitespace(c) || c == ';' || c == '&' || c == '|' || c == '(' || c == '\'' || c == '"';
+    }
+
+    private static int indexOfIgnoreCase(char[] text, int from, int length, String word) {
+        char first = word.charAt(0);
+        for (int i = from; i + word.length() <= length; i++) {
+            if (Character.toLowerCase(text[i]) == first && regionMatches(text, i, length, word)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(char[] text, int offset, int length, String word) {
+        if (offset + word.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(text[offset + i]) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The sniffed prefix followed by the rest of the clipboard, failing past the size limit.
+     */
+    private final class LimitedReader extends Reader {
+        private final char[] prefix;
+        private final int prefixLength;
+        private final Reader reader;
+        private final long limit;
+        private int prefixPos;
+        private long total;
+
+        LimitedReader(char[] prefix, int prefixLength, Reader reader, long limit) {
+            this.prefix = prefix;
+            this.prefixLength = prefixLength;
+            this.reader = reader;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read(char[] dest, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            int read;
+            if (prefixPos < prefixLength) {
+                read = Math.min(count, prefixLength - prefixPos);
+                System.arraycopy(prefix, prefixPos, dest, offset, read);
+                prefixPos += read;
+            } else {
+                read = reader.read(dest, offset, count);
+                if (read == -1) {
+                    return -1;
+                }
+            }
+            total += read;
+            if (total > limit) {
+                exceededLimit = true;
+                throw new IOException(limitMessage());
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package burp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text holding several curl commands (e.g. DevTools "Copy all as cURL") into one string
+ * per command.
+ * <p>
+ * A command starts at a {@code curl} word at the beginning of a logical line and ends at the next
+ * unquoted newline or {@code ;}. Newlines inside quotes and backslash-newline (or backslash-CRLF)
+ * continuations do not end a command. Lines that do not start with {@code curl} are ignored
+ * without looking at their quotes, as is everything after a {@code #} that starts a word, so an
+ * apostrophe in a comment or an {@code echo} line cannot swallow the commands after it.
+ */
+public class CurlCommandSplitter {
+
+    private enum Quote {
+        NONE, SINGLE, DOUBLE, ANSI_C
+    }
+
+    public static List<String> split(String text) {
+        List<String> commands = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return commands;
+        }
+
+        int length = text.length();
+        Quote quote = Quote.NONE;
+        boolean atLineStart = true;
+        int commandStart = -1;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (quote) {
+                case SINGLE:
+                    if (c == '\'') {
+                        quote = Quote.NONE;
+                    }
+                    continue;
+                case DOUBLE:
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == '"') {
+                        quote = Quote.NONE;
+                    }
+                    continue;
+                case ANSI_C:
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == '\'') {
+                        quote = Quote.NONE;
+                    }
+                    continue;
+                default:
+                    break;
+            }
+
+            if (c == '\n' || c == ';') {
+                if (commandStart >= 0) {
+                    addCommand(commands, text, commandStart, i);
+                    commandStart = -1;
+                }
+                atLineStart = true;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+
+            if (c == '#' && (i == 0 || Character.isWhitespace(text.charAt(i - 1)) || text.charAt(i - 1) == ';')) {
+                // A comment runs to the end of the line and ends the command before it
+                if (commandStart >= 0) {
+                    addCommand(commands, text, commandStart, i);
+                    commandStart = -1;
+                }
+                int newline = text.indexOf('\n', i);
+                i = (newline < 0 ? length : newline) - 1;
+                continue;
+            }
+
+            if (atLineStart) {
+                atLineStart = false;
+                if (isCurlWord(text, i)) {
+                    commandStart = i;
+                }
+            }
+            if (commandStart < 0) {
+                // Not a curl command: skip to the end of its line or the next ';', ignoring quotes
+                while (i + 1 < length && text.charAt(i + 1) != '\n' && text.charAt(i + 1) != ';') {
+                    i++;
+                }
+                continue;
+            }
+
+            if (c == '\\') {
+                // Escaped character or line continuation; a CRLF continuation is skipped as one unit
+                i += text.startsWith("\r\n", i + 1) ? 2 : 1;
+            } else if (c == '\'') {
+                quote = Quote.SINGLE;
+            } else if (c == '"') {
+                quote = Quote.DOUBLE;
+            } else if (c == '$' && i + 1 < length && text.charAt(i + 1) == '\'') {
+                quote = Quote.ANSI_C;
+                i++;
+            }
+        }
+
+        if (commandStart >= 0) {
+            addCommand(commands, text, commandStart, length);
+        }
+        return commands;
+    }
+
+    private static void addCommand(List<String> commands, String text, int start, int end) {
+        String command = text.substring(start, end).strip();
+        if (!command.isEmpty()) {
+            commands.add(command);
+        }
+    }
+
+    private static boolean isCurlWord(String text, int start) {
+        int end = start;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != ';') {
+            end++;
+        }
+        String word = text.substring(start, end);
+        String name = word.substring(word.lastIndexOf('/') + 1);
+        return name.equalsIgnoreCase("curl") || name.equalsIgnoreCase("curl.exe");
+    }
+}
@@ -0,0 +1,419 @@
+package burp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command-line converter from curl commands to raw HTTP requests or JSON lines, without Burp.
+ * <p>
+ * Commands are read one per line (a trailing backslash continues the line, blank lines and
+ * {@code #} comments are skipped) or, with {@code -0}, separated by NUL characters. They are parsed
+ * in parallel while the output is written in input order: at most {@code threads * 32} commands are
+ * in flight at once, so memory stays bounded however large the input is.
+ * <pre>
+ * java -jar paste-curl.jar [-0] [-f raw|jsonl] [-j threads] [-v] [file...]
+ * </pre>
+ * In raw format each request is followed by the input delimiter and commands that fail are only
+ * reported on stderr; in jsonl format every command produces one line, with an {@code error} field
+ * for failures. The exit status is 1 if any command failed and 2 for usage errors.
+ */
+public class CurlConverter {
+
+    private static final int WINDOW_PER_THREAD = 32;
+
+    private static final String USAGE = "Usage: java -jar paste-curl.jar [options] [file...]\n"
+            + "Converts curl commands (one per line, or from stdin) into raw HTTP requests.\n\n"
+            + "  -0, --null           commands are separated by NUL instead of newline\n"
+            + "  -f, --format FORMAT  raw (default) or jsonl\n"
+            + "  -j, --threads N      parser threads (default: number of processors)\n"
+            + "  -v, --verbose        log parser details to stderr\n"
+            + "  -h, --help           show this help\n";
+
+    private final boolean nulDelimited;
+    private final boolean jsonLines;
+    private final int threads;
+
+    private int converted;
+    private int failed;
+
+    CurlConverter(boolean nulDelimited, boolean jsonLines, int threads) {
+        this.nulDelimited = nulDelimited;
+        this.jsonLines = jsonLines;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        Log.setStderrOnly(true);
+        int status = run(args, System.in, System.out, System.err);
+        System.exit(status);
+    }
+
+    /**
+     * Run the converter with the given arguments and streams; returns the exit status.
+     */
+    static int run(String[] args, InputStream in, OutputStream out, PrintStream err) {
+        boolean nulDelimited = false;
+        boolean jsonLines = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Log.Level level = Log.Level.WARN;
+        List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-0":
+                case "--null":
+                    nulDelimited = true;
+                    break;
+                case "-f":
+                case "--format":
+                    String format = i + 1 < args.length ? args[++i] : "";
+                    if (!format.equals("raw") && !format.equals("jsonl")) {
+                        return usage(err, "Unknown format: " + format);
+                    }
+                    jsonLines = format.equals("jsonl");
+                    break;
+                case "-j":
+                case "--threads":
+                    try {
+                        threads = Integer.parseInt(i + 1 < args.length ? args[++i] : "");
+                    } catch (NumberFormatException e) {
+                        return usage(err, "Invalid thread count: " + args[i]);
+                    }
+                    if (threads < 1) {
+                        return usage(err, "Invalid thread count: " + threads);
+                    }
+                    break;
+                case "-v":
+                case "--verbose":
+                    level = Log.Level.DEBUG;
+                    break;
+                case "-h":
+                case "--help":
+                    err.print(USAGE);
+                    return 0;
+                default:
+                    if (arg.startsWith("-") && !arg.equals("-")) {
+                        return usage(err, "Unknown option: " + arg);
+                    }
+                    files.add(arg);
+                    break;
+            }
+        }
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+
+        Log.Level previousLevel = Log.getLevel();
+        Log.setLevel(level);
+        CurlConverter converter = new CurlConverter(nulDelimited, jsonLines, threads);
+        try {
+            OutputStream output = new BufferedOutputStream(out, 1 << 16);
+            for (String file : files) {
+                try (Reader reader = file.equals("-")
+                        ? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)
+                        : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                    converter.convert(file, reader, output, err);
+                }
+            }
+            output.flush();
+        } catch (IOException e) {
+            err.println("paste-curl: " + e.getMessage());
+            return 2;
+        } finally {
+            Log.setLevel(previousLevel);
+        }
+
+        if (converter.failed > 0) {
+            err.println("paste-curl: converted " + converter.converted + " commands, "
+                    + converter.failed + " failed");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int usage(PrintStream err, String message) {
+        err.println("paste-curl: " + message);
+        err.print(USAGE);
+        return 2;
+    }
+
+    /**
+     * Convert every command from {@code reader}, writing results to {@code out} in input order.
+     */
+    void convert(String source, Reader reader, OutputStream out, PrintStream err) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Paste cURL converter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Result>> window = new ArrayDeque<>();
+        int maxInFlight = threads * WINDOW_PER_THREAD;
+        try {
+            CommandReader commands = new CommandReader(reader, nulDelimited ? '\0' : '\n');
+            String command;
+            while ((command = commands.next()) != null) {
+                if (window.size() >= maxInFlight) {
+                    write(window.removeFirst(), out, err);
+                }
+                String text = command;
+                int line = commands.line();
+                window.addLast(pool.submit(() -> convert(source, line, text)));
+            }
+            while (!window.isEmpty()) {
+                write(window.removeFirst(), out, err);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void write(Future<Result> future, OutputStream out, PrintStream err) throws IOException {
+        Result result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Conversion interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (result.error != null) {
+            failed++;
+            err.println("paste-curl: " + result.error);
+        } else {
+            converted++;
+        }
+        if (result.output != null) {
+            out.write(result.output);
+        }
+    }
+
+    private Result convert(String source, int line, String command) {
+        String error;
+        try {
+            CurlParser.CurlRequest request = CurlParser.parseCurlCommand(command);
+            if (request != null) {
+                return new Result(jsonLines ? toJsonLine(source, line, request) : toRaw(request), null);
+            }
+            error = "could not be parsed";
+        } catch (RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        String message = source + ":" + line + ": " + error;
+        return new Result(jsonLines ? errorJsonLine(source, line, error) : null, message);
+    }
+
+    private byte[] toRaw(CurlParser.CurlRequest request) {
+        byte[] raw = RequestAssembler.toBytes(request);
+        byte[] output = new byte[raw.length + 1];
+        System.arraycopy(raw, 0, output, 0, raw.length);
+        output[raw.length] = (byte) (nulDelimited ? 0 : '\n');
+        return output;
+    }
+
+    static byte[] toJsonLine(String source, int line, CurlParser.CurlRequest request) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"source\":");
+        appendString(json, source);
+        json.append(",\"line\":").append(line).append(",\"method\":");
+        appendString(json, request.getMethod());
+        json.append(",\"url\":");
+        appendString(json, request.getBaseUrl());
+        json.append(",\"headers\":[");
+        HeaderList headers = request.getHeaders();
+        for (int i = 0; i < headers.size(); i++) {
+            json.append(i == 0 ? "{\"name\":" : ",{\"name\":");
+            appendString(json, headers.name(i));
+            json.append(",\"value\":");
+            appendString(json, headers.value(i));
+            json.append('}');
+        }
+        json.append(']');
+
+        if (request.getBodyLength() > 0) {
+            byte[] body = request.getBodyBytes();
+            try {
+                String text = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(ByteBuffer.wrap(body))
+                        .toString();
+                json.append(",\"body\":");
+                appendString(json, text);
+            } catch (CharacterCodingException e) {
+                json.append(",\"bodyBase64\":\"").append(Base64.getEncoder().encodeToString(body)).append('"');
+            }
+        }
+        json.append("}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] errorJsonLine(String source, int line, String error) {
+        StringBuilder json = new StringBuilder(96);
+        json.append("{\"source\":");
+        appendString(json, source);
+        json.append(",\"line\":").append(line).append(",\"error\":");
+        appendString(json, error);
+        json.append("}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+
+    private static final class Result {
+        final byte[] output;
+        final String error;
+
+        Result(byte[] output, String error) {
+            this.output = output;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Reads delimited commands one at a time. With newline delimiters a line ending in a backslash is
+     * joined with the next one (the backslash-newline stays for the lexer to drop), a CR before the
+     * newline is ignored, and blank lines and {@code #} comments are skipped.
+     */
+    static final class CommandReader {
+        private final Reader reader;
+        private final char delimiter;
+        private final char[] buffer = new char[1 << 14];
+        private final StringBuilder command = new StringBuilder(1024);
+        private int position;
+        private int limit;
+        private int nextLine = 1;
+        private int line;
+
+        CommandReader(Reader reader, char delimiter) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * The next non-blank command, or null at the end of the input.
+         */
+        String next() throws IOException {
+            while (true) {
+                command.setLength(0);
+                line = nextLine;
+                boolean any = false;
+                while (position < limit || fill()) {
+                    any = true;
+                    char c = buffer[position++];
+                    if (c == '\n') {
+                        nextLine++;
+                    }
+                    if (c != delimiter) {
+                        command.append(c);
+                        continue;
+                    }
+                    if (delimiter != '\n') {
+                        break;
+                    }
+                    int end = command.length();
+                    if (end > 0 && command.charAt(end - 1) == '\r') {
+                        command.setLength(end - 1);
+                    }
+                    if (!endsWithContinuation(command)) {
+                        break;
+                    }
+                    command.append('\n');
+                }
+                if (!any) {
+                    return null;
+                }
+                if (!isSkipped(command)) {
+                    return command.toString();
+                }
+            }
+        }
+
+        private boolean fill() throws IOException {
+            int read = reader.read(buffer, 0, buffer.length);
+            while (read == 0) {
+                read = reader.read(buffer, 0, buffer.length);
+            }
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+
+        /**
+         * Line number where the last command returned by {@link #next()} starts.
+         */
+        int line() {
+            return line;
+        }
+
+        private boolean isSkipped(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    return delimiter == '\n' && c == '#';
+                }
+            }
+            return true;
+        }
+
+        private static boolean endsWithContinuation(CharSequence text) {
+            int backslashes = 0;
+            for (int i = text.length() - 1; i >= 0 && text.charAt(i) == '\\'; i--) {
+                backslashes++;
+            }
+            return backslashes % 2 == 1;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package burp;
+
+import burp.api.montoya.http.message.HttpHeader;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes requests as curl commands, one after another, to a {@link Writer}.
+ * <p>
+ * Arguments that are printable ASCII are single-quoted; anything else uses bash {@code $'...'}
+ * quoting with {@code \xHH} escapes, so binary bodies survive the round trip. Output goes through a
+ * fixed char buffer straight to the writer: bodies are escaped byte by byte without building strings,
+ * so exporting a whole proxy history to a file needs no more memory than the largest single request.
+ * {@code Host} and {@code Content-Length} headers are left to curl. Bash cuts arguments at a NUL
+ * byte, so bodies holding one only round-trip through this extension, not through a shell.
+ */
+final class CurlExporter implements Flushable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String CONTINUATION = " \\\n  ";
+
+    private final Writer out;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int count;
+
+    CurlExporter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Number of commands written so far.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Write a comment line, e.g. a shebang at the top of a script.
+     */
+    void comment(String text) throws IOException {
+        append(text);
+        append('\n');
+    }
+
+    /**
+     * Write one request as a curl command followed by a newline.
+     */
+    void write(String method, String url, List<HttpHeader> headers, byte[] body) throws IOException {
+        append("curl ");
+        quote(url);
+        boolean hasBody = body != null && body.length > 0;
+        if (!method.equals("GET") && !(method.equals("POST") && hasBody)) {
+            append(CONTINUATION);
+            append("-X ");
+            quote(method);
+            if (method.equals("HEAD")) {
+                // curl -X HEAD alone waits for a body that never comes
+                append(" --head");
+            }
+        }
+        String authority = authority(url);
+        for (HttpHeader header : headers) {
+            String name = header.name();
+            if (name.startsWith(":") || name.equalsIgnoreCase("Content-Length")
+                    || (name.equalsIgnoreCase("Host") && header.value().equalsIgnoreCase(authority))) {
+                continue;
+            }
+            append(CONTINUATION);
+            append("-H ");
+            quote(name + ": " + header.value());
+        }
+        if (hasBody) {
+            append(CONTINUATION);
+            // --data-binary would read a body starting with @ from a file
+            append(body[0] == '@' ? "--data-raw " : "--data-binary ");
+            quote(body);
+        }
+        append('\n');
+        count++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    /**
+     * The host and port part of {@code url}, for comparing with the Host header.
+     */
+    static String authority(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        return url.substring(start, end);
+    }
+
+    /**
+     * Quote a header or URL; chars up to U+00FF stand for the byte of the same value, as in Burp's
+     * messages, and anything above is written as UTF-8.
+     */
+    private void quote(String text) throws IOException {
+        boolean plain = true;
+        for (int i = 0; i < text.length() && plain; i++) {
+            plain = isPlain(text.charAt(i));
+        }
+        if (plain) {
+            singleQuote(text);
+            return;
+        }
+        append("$'");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x100) {
+                escape(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                hexByte(0xf0 | codePoint >> 18);
+                hexByte(0x80 | codePoint >> 12 & 0x3f);
+                hexByte(0x80 | codePoint >> 6 & 0x3f);
+                hexByte(0x80 | codePoint & 0x3f);
+            } else if (c < 0x800) {
+                hexByte(0xc0 | c >> 6);
+                hexByte(0x80 | c & 0x3f);
+            } else {
+                hexByte(0xe0 | c >> 12);
+                hexByte(0x80 | c >> 6 & 0x3f);
+                hexByte(0x80 | c & 0x3f);
+            }
+        }
+        append('\'');
+    }
+
+    private void quote(byte[] bytes) throws IOException {
+        boolean plain = true;
+        for (int i = 0; i < bytes.length && plain; i++) {
+            plain = isPlain((char) (bytes[i] & 0xff));
+        }
+        if (plain) {
+            append('\'');
+            for (byte b : bytes) {
+                if (b == '\'') {
+                    append("'\\''");
+                } else {
+                    append((char) b);
+                }
+            }
+            append('\'');
+            return;
+        }
+        append("$'");
+        for (byte b : bytes) {
+            escape((char) (b & 0xff));
+        }
+        append('\'');
+    }
+
+    private void singleQuote(String text) throws IOException {
+        append('\'');
+        int start = 0;
+        for (int quote = text.indexOf('\''); quote >= 0; quote = text.indexOf('\'', start)) {
+            append(text, start, quote);
+            append("'\\''");
+            start = quote + 1;
+        }
+        append(text, start, text.length());
+        append('\'');
+    }
+
+    private static boolean isPlain(char c) {
+        return c >= 0x20 && c < 0x7f;
+    }
+
+    /**
+     * Append one byte inside {@code $'...'}.
+     */
+    private void escape(char c) throws IOException {
+        switch (c) {
+            case '\\':
+                append("\\\\");
+                break;
+            case '\'':
+                append("\\'");
+                break;
+            case '\n':
+                append("\\n");
+                break;
+            case '\r':
+                append("\\r");
+                break;
+            case '\t':
+                append("\\t");
+                break;
+            default:
+                if (isPlain(c)) {
+                    append(c);
+                } else {
+                    hexByte(c);
+                }
+        }
+    }
+
+    private void hexByte(int b) throws IOException {
+        if (position + 4 > buffer.length) {
+            drain();
+        }
+        buffer[position++] = '\\';
+        buffer[position++] = 'x';
+        buffer[position++] = HEX[b >> 4 & 0xf];
+        buffer[position++] = HEX[b & 0xf];
+    }
+
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void append(String text) throws IOException {
+        append(text, 0, text.length());
+    }
+
+    private void append(String text, int start, int end) throws IOException {
+        while (start < end) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int n = Math.min(end - start, buffer.length - position);
+            text.getChars(start, start + n, buffer, position);
+            position += n;
+            start += n;
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -0,0 +1,633 @@
+package burp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a curl command line into shell words in a single left-to-right pass.
+ * <p>
+ * Follows bash quoting rules closely enough for commands produced by browsers and API tools:
+ * single quotes, double quotes, ANSI-C {@code $'...'} quotes, backslash escapes and
+ * backslash-newline line continuations. Adjacent quoted and unquoted segments are joined into one
+ * word, as the shell would do.
+ * <p>
+ * The input is read through a fixed window, so it can come from a {@link Reader} without ever being
+ * held as one string. Words larger than the spill threshold (typically {@code --data} arguments) are
+ * moved to a temporary file while they are read; the file is deleted when the lexer is closed.
+ */
+final class CurlLexer implements Closeable {
+
+    static final int DEFAULT_SPILL_THRESHOLD = Integer.getInteger("pastecurl.spillThreshold", 16 * 1024 * 1024);
+
+    private static final int WINDOW = 64 * 1024;
+
+    private final Reader reader;
+    private final CharSequence text;
+    private final int spillThreshold;
+    private final ByteBuilder word = new ByteBuilder();
+    private final List<FileChannel> spills = new ArrayList<>(0);
+
+    private final char[] buf;
+    private int bufLength;
+    private long bufOffset;
+    private int textPos;
+    private boolean eof;
+
+    // Index in buf of the current run of literal characters, or -1
+    private int runStart = -1;
+    private int pos;
+
+    private FileChannel spill;
+
+    // Number of digits read by the last parseDigits call
+    private int digits;
+
+    CurlLexer(CharSequence input) {
+        this(null, input, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    CurlLexer(Reader reader) {
+        this(reader, null, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    CurlLexer(Reader reader, int spillThreshold) {
+        this(reader, null, spillThreshold);
+    }
+
+    private CurlLexer(Reader reader, CharSequence text, int spillThreshold) {
+        this.reader = reader;
+        this.text = text;
+        this.spillThreshold = spillThreshold;
+        // Text shorter than the window is read in one go, so a window just past its length is enough
+        this.buf = new char[text == null ? WINDOW : Math.min(WINDOW, text.length() + 16)];
+    }
+
+    /**
+     * Number of characters consumed so far.
+     */
+    long position() {
+        return bufOffset + pos;
+    }
+
+    /**
+     * Read the next word, or return null at the end of the input.
+     *
+     * @throws UncheckedIOException if the reader or a spill file fails
+     */
+    Token next() {
+        skipSeparators();
+        if (peek(0) < 0) {
+            return null;
+        }
+
+        boolean quoted = false;
+        word.reset();
+
+        int c;
+        while ((c = peek(0)) >= 0 && !Character.isWhitespace(c)) {
+            switch (c) {
+                case '\\':
+                    if (!skipContinuation()) {
+                        int next = peek(1);
+                        if (next >= 0) {
+                            word.append((char) next);
+                            pos += 2;
+                        } else {
+                            pos++;
+                        }
+                    }
+                    break;
+                case '\'':
+                    quoted = true;
+                    readSingleQuoted();
+                    break;
+                case '"':
+                    quoted = true;
+                    readDoubleQuoted();
+                    break;
+                case '$':
+                    if (peek(1) == '\'') {
+                        quoted = true;
+                        readAnsiCQuoted();
+                    } else {
+                        word.append('$');
+                        pos++;
+                    }
+                    break;
+                default:
+                    readUnquotedRun();
+                    break;
+            }
+        }
+
+        if (spill == null) {
+            return new Token(word.toByteArray(), quoted);
+        }
+        FileChannel spilled = spill;
+        spill = null;
+        try {
+            word.drainTo(spilled, true);
+            return Token.spilled(spilled, spilled.size(), quoted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Delete the spill files; tokens that were spilled cannot be read afterwards.
+     */
+    @Override
+    public void close() {
+        for (FileChannel channel : spills) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // DELETE_ON_CLOSE still removes the file when the JVM exits
+            }
+        }
+        spills.clear();
+    }
+
+    private void skipSeparators() {
+        int c;
+        while ((c = peek(0)) >= 0) {
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c != '\\' || !skipContinuation()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skip a backslash-newline (or backslash-CRLF) continuation at {@code pos}.
+     */
+    private boolean skipContinuation() {
+        int next = peek(1);
+        if (next == '\n') {
+            pos += 2;
+            return true;
+        }
+        if (next == '\r' && peek(2) == '\n') {
+            pos += 3;
+            return true;
+        }
+        return false;
+    }
+
+    private void readUnquotedRun() {
+        beginRun();
+        int c;
+        while ((c = peek(0)) >= 0) {
+            if (Character.isWhitespace(c) || c == '\\' || c == '\'' || c == '"' || c == '$') {
+                break;
+            }
+            pos++;
+        }
+        endRun();
+    }
+
+    private void readSingleQuoted() {
+        pos++;
+        beginRun();
+        while (true) {
+            for (int i = pos; i < bufLength; i++) {
+                if (buf[i] == '\'') {
+                    pos = i;
+                    endRun();
+                    pos++;
+                    return;
+                }
+            }
+            pos = bufLength;
+            if (!fill()) {
+                endRun();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inside double quotes a backslash only escapes {@code $ ` " \} and newline; any other
+     * backslash is kept literally.
+     */
+    private void readDoubleQuoted() {
+        pos++;
+        beginRun();
+        int c;
+        while ((c = peek(0)) >= 0) {
+            if (c == '"') {
+                endRun();
+                pos++;
+                return;
+            }
+            if (c == '\\') {
+                int next = peek(1);
+                if (next == '$' || next == '`' || next == '"' || next == '\\' || next == '\n') {
+                    endRun();
+                    if (next != '\n') {
+                        word.append((char) next);
+                    }
+                    pos += 2;
+                    beginRun();
+                    continue;
+                }
+            }
+            pos++;
+        }
+        endRun();
+    }
+
+    private void readAnsiCQuoted() {
+        pos += 2;
+        beginRun();
+        int c;
+        while ((c = peek(0)) >= 0) {
+            if (c == '\'') {
+                endRun();
+                pos++;
+                return;
+            }
+            if (c == '\\' && peek(1) >= 0) {
+                endRun();
+                appendAnsiCEscape();
+                beginRun();
+                continue;
+            }
+            pos++;
+        }
+        endRun();
+    }
+
+    /**
+     * Decode one escape sequence starting at the backslash at {@code pos} and move past it, with
+     * bash's rules: {@code \xHH} and octal {@code \NNN} are raw bytes (so {@code $'\xc3\xa9'} is the
+     * UTF-8 encoding of one character), the {@code u} and {@code U} escapes are code points written as
+     * UTF-8, {@code \cX} is a control character and unknown escapes keep their backslash.
+     */
+    private void appendAnsiCEscape() {
+        char next = (char) peek(1);
+        switch (next) {
+            case '"':
+            case '\\':
+            case '\'':
+            case '?':
+                word.append(next);
+                pos += 2;
+                return;
+            case 'a':
+                appendControl(0x07);
+                return;
+            case 'b':
+                appendControl(0x08);
+                return;
+            case 'e':
+            case 'E':
+                appendControl(0x1b);
+                return;
+            case 'f':
+                appendControl(0x0c);
+                return;
+            case 'n':
+                appendControl('\n');
+                return;
+            case 'r':
+                appendControl('\r');
+                return;
+            case 't':
+                appendControl('\t');
+                return;
+            case 'v':
+                appendControl(0x0b);
+                return;
+            case 'c': {
+                int c = peek(2);
+                if (c >= 0) {
+                    word.append(c == '?' ? 0x7f : Character.toUpperCase((char) c) & 0x1f);
+                    pos += 3;
+                    return;
+                }
+                break;
+            }
+            case 'x': {
+                int value = parseDigits(2, 2, 16);
+                if (digits > 0) {
+                    word.append(value);
+                    pos += 2 + digits;
+                    return;
+                }
+                break;
+            }
+            case 'u':
+            case 'U': {
+                int value = parseDigits(2, next == 'u' ? 4 : 8, 16);
+                if (digits > 0) {
+                    word.appendCodePoint(value <= Character.MAX_CODE_POINT
+                            && (value < Character.MIN_SURROGATE || value > Character.MAX_SURROGATE) ? value : '?');
+                    pos += 2 + digits;
+                    return;
+                }
+                break;
+            }
+            default:
+                if (next >= '0' && next <= '7') {
+                    int value = parseDigits(1, 3, 8);
+                    word.append(value & 0xff);
+                    pos += 1 + digits;
+                    return;
+                }
+                break;
+        }
+        word.append('\\').append(next);
+        pos += 2;
+    }
+
+    private void appendControl(int c) {
+        word.append(c);
+        pos += 2;
+    }
+
+    /**
+     * Read up to {@code maxDigits} digits at {@code pos + from}, leaving the count in {@link #digits}.
+     */
+    private int parseDigits(int from, int maxDigits, int radix) {
+        int value = 0;
+        digits = 0;
+        while (digits < maxDigits) {
+            int c = peek(from + digits);
+            int digit = c < 0 ? -1 : Character.digit((char) c, radix);
+            if (digit < 0) {
+                break;
+            }
+            value = value * radix + digit;
+            digits++;
+        }
+        return value;
+    }
+
+    private void beginRun() {
+        runStart = pos;
+    }
+
+    private void endRun() {
+        word.append(buf, runStart, pos);
+        runStart = -1;
+    }
+
+    /**
+     * The character {@code ahead} positions after {@code pos}, or -1 past the end of the input.
+     */
+    private int peek(int ahead) {
+        while (pos + ahead >= bufLength) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return buf[pos + ahead];
+    }
+
+    /**
+     * Slide the window to {@code pos} and read more input. A pending literal run is appended to the
+     * word first, and a word that has grown past the spill threshold is moved to its spill file.
+     */
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (runStart >= 0) {
+            word.append(buf, runStart, pos);
+            runStart = 0;
+        }
+        if (word.length() >= spillThreshold) {
+            spillWord();
+        }
+
+        int keep = bufLength - pos;
+        System.arraycopy(buf, pos, buf, 0, keep);
+        bufOffset += pos;
+        bufLength = keep;
+        pos = 0;
+
+        int read = read(buf, bufLength, buf.length - bufLength);
+        if (read <= 0) {
+            eof = true;
+            return false;
+        }
+        bufLength += read;
+        return true;
+    }
+
+    private int read(char[] dest, int offset, int count) {
+        if (text != null) {
+            int n = Math.min(count, text.length() - textPos);
+            if (n <= 0) {
+                return -1;
+            }
+            if (text instanceof String) {
+                ((String) text).getChars(textPos, textPos + n, dest, offset);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    dest[offset + i] = text.charAt(textPos + i);
+                }
+            }
+            textPos += n;
+            return n;
+        }
+        try {
+            int n;
+            do {
+                n = reader.read(dest, offset, count);
+            } while (n == 0);
+            return n;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void spillWord() {
+        try {
+            if (spill == null) {
+                Path file = Files.createTempFile("paste-curl-", ".tmp");
+                spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+                spills.add(spill);
+            }
+            word.drainTo(spill, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A shell word with its unquoted bytes. The text form is only decoded when asked for, so large data
+     * arguments can stay bytes; the largest ones live in a spill file and only their first bytes are
+     * kept on the heap for option and prefix checks.
+     */
+    static final class Token {
+        private static final int HEAD = 64;
+
+        final boolean quoted;
+        private final byte[] bytes;
+        private final FileChannel spill;
+        private final long spillOffset;
+        private final long length;
+        private String value;
+
+        Token(byte[] bytes, boolean quoted) {
+            this(bytes, null, 0, bytes.length, quoted);
+        }
+
+        private Token(byte[] bytes, FileChannel spill, long spillOffset, long length, boolean quoted) {
+            this.bytes = bytes;
+            this.spill = spill;
+            this.spillOffset = spillOffset;
+            this.length = length;
+            this.quoted = quoted;
+        }
+
+        static Token spilled(FileChannel spill, long length, boolean quoted) throws IOException {
+            byte[] head = new byte[(int) Math.min(HEAD, length)];
+            readFully(spill, 0, head, 0, head.length);
+            return new Token(head, spill, 0, length, quoted);
+        }
+
+        long length() {
+            return length;
+        }
+
+        /**
+         * Byte {@code index} of the word; only the first {@value #HEAD} bytes are available for spilled
+         * words.
+         */
+        byte byteAt(int index) {
+            return bytes[index];
+        }
+
+        String value() {
+            if (value == null) {
+                value = new String(toByteArray(), StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+
+        /**
+         * The whole word. Heap words return their own array, which must not be modified.
+         */
+        byte[] toByteArray() {
+            if (spill == null) {
+                return bytes;
+            }
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new UncheckedIOException(new IOException("Argument of " + length + " bytes is too large"));
+            }
+            byte[] all = new byte[(int) length];
+            copyInto(all, 0);
+            return all;
+        }
+
+        /**
+         * Copy the whole word into {@code dest} at {@code offset}.
+         */
+        void copyInto(byte[] dest, int offset) {
+            if (spill == null) {
+                System.arraycopy(bytes, 0, dest, offset, bytes.length);
+                return;
+            }
+            try {
+                readFully(spill, spillOffset, dest, offset, (int) length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Number of leading bytes held on the heap: the whole word, or the first {@value #HEAD} bytes of a
+         * spilled one.
+         */
+        int headLength() {
+            return bytes.length;
+        }
+
+        /**
+         * Position of the first {@code b} among the {@link #headLength() head} bytes, or -1.
+         */
+        int indexOf(byte b) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Decode head bytes {@code from} to {@code to} without touching the rest of the word, e.g. the
+         * name in {@code --data-raw=value}.
+         */
+        String text(int from, int to) {
+            return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Whether this word looks like an option ({@code -x}, {@code --name}) without decoding it.
+         */
+        boolean isOption() {
+            return length > 1 && bytes[0] == '-';
+        }
+
+        /**
+         * Case-insensitive prefix test on the raw bytes; {@code asciiPrefix} must be lower case.
+         */
+        boolean startsWithIgnoreCase(String asciiPrefix) {
+            if (bytes.length < asciiPrefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < asciiPrefix.length(); i++) {
+                if (Character.toLowerCase((char) bytes[i]) != asciiPrefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The part of this word after the ASCII prefix of length {@code offset}, e.g. the value in
+         * {@code --data=value} or {@code -XPOST}.
+         */
+        Token suffix(int offset) {
+            if (spill == null) {
+                return new Token(Arrays.copyOfRange(bytes, offset, bytes.length), quoted);
+            }
+            // Keep the spilled remainder in its file and only reload its head
+            long remaining = length - offset;
+            byte[] head = new byte[(int) Math.min(HEAD, remaining)];
+            try {
+                readFully(spill, spillOffset + offset, head, 0, head.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Token(head, spill, spillOffset + offset, remaining, quoted);
+        }
+
+        private static void readFully(FileChannel channel, long position, byte[] dest, int offset, int count)
+                throws IOException {
+            ByteBuffer target = ByteBuffer.wrap(dest, offset, count);
+            while (target.hasRemaining()) {
+                if (channel.read(target, position + target.position() - offset) < 0) {
+                    throw new IOException("Spill file is shorter than expected");
+                }
+            }
+        }
+    }
+}
@@ -3,14 +3,23 @@ package burp;
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.http.message.HttpHeader;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * Parses cURL request into strings.
@@ -19,20 +28,67 @@ import java.util.regex.Pattern;
  */
 public class CurlParser {
 
-    private static final Pattern METHOD_PATTERN = Pattern.compile(
-            "(?:--request|-X)\\s+(?:\\$'([^']+)'|['\"]([^'\"]+)['\"]|([A-Za-z]+))");
-
-    private static final Pattern DATA_FLAG_PATTERN = Pattern.compile(
-            "(?:--data-binary|--data-raw|--data-ascii|--data-urlencode|--data|-d)(?:\\s+|=)");
-
-    private static final Pattern USER_PATTERN = Pattern.compile(
-            "(?:--user|-u)\\s+(?:\\$'([^']+)'|['\"]([^'\"]+)['\"]|(\\S+))");
-
-    private static final Pattern HEADER_PATTERN = Pattern.compile(
-            "(?:--header|-H)\\s+(?:\\$'([^']+)'|['\"]([^'\"]+)['\"])");
+    /**
+     * curl options this parser acts on, plus {@link #OTHER} for options that take a value we ignore.
+     */
+    enum Flag {
+        METHOD, HEADER, COOKIE, USER, DATA, DATA_RAW, DATA_BINARY, DATA_URLENCODE, FORM, FORM_STRING, UPLOAD_FILE,
+        URL, MAX_TIME, CONNECT_TIMEOUT, OTHER;
+
+        /**
+         * The flag values are grouped under: every --data variant is collected, in order, as DATA and
+         * every --form variant as FORM.
+         */
+        Flag group() {
+            if (this == FORM_STRING) {
+                return FORM;
+            }
+            return this == DATA_RAW || this == DATA_BINARY || this == DATA_URLENCODE ? DATA : this;
+        }
+    }
 
-    private static final Pattern COOKIE_FLAG_PATTERN = Pattern.compile(
-            "(?:--cookie|-b)(?:\\s+|=)");
+    private static final Map<String, Flag> LONG_FLAGS = new HashMap<>();
+    private static final Map<Character, Flag> SHORT_FLAGS = new HashMap<>();
+
+    static {
+        LONG_FLAGS.put("request", Flag.METHOD);
+        LONG_FLAGS.put("header", Flag.HEADER);
+        LONG_FLAGS.put("cookie", Flag.COOKIE);
+        LONG_FLAGS.put("user", Flag.USER);
+        LONG_FLAGS.put("data", Flag.DATA);
+        LONG_FLAGS.put("data-raw", Flag.DATA_RAW);
+        LONG_FLAGS.put("data-binary", Flag.DATA_BINARY);
+        LONG_FLAGS.put("data-ascii", Flag.DATA);
+        LONG_FLAGS.put("data-urlencode", Flag.DATA_URLENCODE);
+        LONG_FLAGS.put("form", Flag.FORM);
+        LONG_FLAGS.put("form-string", Flag.FORM_STRING);
+        LONG_FLAGS.put("upload-file", Flag.UPLOAD_FILE);
+        LONG_FLAGS.put("url", Flag.URL);
+        LONG_FLAGS.put("max-time", Flag.MAX_TIME);
+        LONG_FLAGS.put("connect-timeout", Flag.CONNECT_TIMEOUT);
+        for (String other : new String[]{
+                "referer", "user-agent", "output", "proxy", "proxy-user",
+                "cookie-jar", "write-out", "cacert", "capath", "cert",
+                "cert-type", "key", "key-type", "pass", "resolve", "connect-to", "retry", "retry-delay",
+                "retry-max-time", "max-redirs", "limit-rate", "interface", "dump-header", "config",
+                "oauth2-bearer", "request-target", "range", "time-cond", "unix-socket", "ciphers", "trace",
+                "trace-ascii", "stderr", "quote", "ftp-port", "continue-at", "local-port", "tls-max",
+                "proxy-header", "aws-sigv4", "expect100-timeout", "keepalive-time", "mail-from", "mail-rcpt"}) {
+            LONG_FLAGS.put(other, Flag.OTHER);
+        }
+
+        SHORT_FLAGS.put('X', Flag.METHOD);
+        SHORT_FLAGS.put('H', Flag.HEADER);
+        SHORT_FLAGS.put('b', Flag.COOKIE);
+        SHORT_FLAGS.put('u', Flag.USER);
+        SHORT_FLAGS.put('d', Flag.DATA);
+        SHORT_FLAGS.put('F', Flag.FORM);
+        SHORT_FLAGS.put('T', Flag.UPLOAD_FILE);
+        SHORT_FLAGS.put('m', Flag.MAX_TIME);
+        for (char other : "eAoxUcwEKrCYyzPQt".toCharArray()) {
+            SHORT_FLAGS.put(other, Flag.OTHER);
+        }
+    }
 
     public static CurlRequest parseCurlCommand(String curlCommand) {
         return parseCurlCommand(curlCommand, null);
@@ -43,8 +99,42 @@ public class CurlParser {
             return null;
         }
 
-        log("CurlParser.parseCurlCommand(): " + summarizeForLog(curlCommand), api);
+        Log.debug(() -> "CurlParser.parseCurlCommand(): " + Log.summarize(curlCommand, 120));
+        return parse(new CurlLexer(curlCommand));
+    }
 
+    /**
+     * Parse a command read incrementally, e.g. straight from the clipboard. The command is never held
+     * as one string and large data arguments are spilled to temporary files while it is read, so very
+     * large pastes only need the final request body on the heap.
+     */
+    public static CurlRequest parseCurlCommand(Reader curlCommand, MontoyaApi api) {
+        Log.debug(() -> "CurlParser.parseCurlCommand(): streaming input");
+        return parse(new CurlLexer(curlCommand));
+    }
+
+    /**
+     * Parse a command read from a script, resolving relative file names in {@code @file} data,
+     * {@code -F}, {@code -T} and cookie file arguments against the script's directory.
+     */
+    public static CurlRequest parseScriptCommand(String curlCommand, Path scriptDirectory) {
+        if (curlCommand == null || curlCommand.isBlank()) {
+            return null;
+        }
+        return parse(new CurlLexer(curlCommand), scriptDirectory);
+    }
+
+    private static CurlRequest parse(CurlLexer lexer) {
+        return parse(lexer, null);
+    }
+
+    private static CurlRequest parse(CurlLexer lexer, Path baseDirectory) {
+        try (lexer) {
+            return parse(lexer, Metrics.start(), baseDirectory);
+        }
+    }
+
+    private static CurlRequest parse(CurlLexer lexer, long parseStart, Path baseDirectory) {
         String requestMethod = "GET";
         boolean methodExplicit = false;
         String protocol = null;
@@ -52,28 +142,35 @@ public class CurlParser {
         String path = null;
         Integer port = null;
         String query = null;
-        List<HttpHeader> headers = new ArrayList<>();
-        String body = "";
+        HeaderList headers = new HeaderList();
+        RequestBody body = new RequestBody();
         String userInfo = null;
+        boolean readsFiles = false;
+
+        // Tokenize once; every option below is read from this single pass
+        CommandLine commandLine;
+        try {
+            commandLine = CommandLine.scan(lexer);
+        } catch (UncheckedIOException e) {
+            Log.error("Failed to read curl command", e.getCause());
+            failed(Metrics.Stage.LEX);
+            return null;
+        }
+        Metrics.INPUT_SIZE.record(lexer.position());
+        long stageStart = Metrics.Stage.LEX.record(parseStart);
 
-        // Extract request method (case-insensitive)
-        Matcher methodMatcher = METHOD_PATTERN.matcher(curlCommand);
-        if (methodMatcher.find()) {
-            String rawMethod = firstNonNull(methodMatcher.group(1), methodMatcher.group(2), methodMatcher.group(3));
-            if (rawMethod != null) {
-                if (methodMatcher.group(1) != null) {
-                    rawMethod = unescapeDollarQuote(rawMethod);
-                }
-                requestMethod = rawMethod.trim().toUpperCase(Locale.ROOT);
-                methodExplicit = true;
-            }
+        // Extract request method (case-insensitive, last -X wins as in curl)
+        String rawMethod = commandLine.last(Flag.METHOD);
+        if (rawMethod != null && !rawMethod.isBlank()) {
+            requestMethod = rawMethod.trim().toUpperCase(Locale.ROOT);
+            methodExplicit = true;
         }
 
-        // Extract full URL - ignore URLs embedded in headers/cookies/data
-        String extractedUrl = extractUrl(curlCommand);
+        // Extract full URL - values of headers/cookies/data are never candidates
+        String extractedUrl = commandLine.url();
 
         if (extractedUrl != null) {
-            log("url: " + extractedUrl, api);
+            Log.debug(() -> "url: " + Log.summarize(extractedUrl, 200));
             try {
                 URL url = new URL(extractedUrl);
                 protocol = url.getProtocol();
@@ -83,420 +180,436 @@ public class CurlParser {
                 port = url.getPort();
                 userInfo = url.getUserInfo();
             } catch (java.net.MalformedURLException mue) {
-                if (api != null) {
-                    api.logging().logToError("Failed to parse URL: " + extractedUrl);
-                    api.logging().logToError(mue);
-                }
+                Log.error("Failed to parse URL: " + Log.summarize(extractedUrl, 200), mue);
+                failed(Metrics.Stage.URL);
                 return null;
             }
         } else {
-            if (api != null) {
-                api.logging().logToError("No valid URL found in curl command");
-            }
+            Log.warn(() -> "No valid URL found in curl command");
+            failed(Metrics.Stage.URL);
             return null;
         }
+        stageStart = Metrics.Stage.URL.record(stageStart);
 
-        // Extract headers
-        Matcher headerMatcher = HEADER_PATTERN.matcher(curlCommand);
-        while (headerMatcher.find()) {
-            String header;
-            if (headerMatcher.group(1) != null) {
-                header = unescapeDollarQuote(headerMatcher.group(1));
-            } else {
-                header = headerMatcher.group(2);
-            }
-            if (header == null) {
-                continue;
-            }
-            addHeaderIfAbsent(headers, header);
+        // Extract headers; repeated -H values are all sent, like curl does
+        for (String header : commandLine.values(Flag.HEADER)) {
+            headers.addLine(header);
         }
 
-        // Cookies via -b / --cookie
-        for (String cookieValue : extractFlagValues(curlCommand, COOKIE_FLAG_PATTERN)) {
-            if (cookieValue != null && !cookieValue.isEmpty() && !cookieValue.startsWith("@")) {
-                addHeaderIfAbsent(headers, "Cookie: " + cookieValue);
+        // Cookies via -b / --cookie; a value without '=' names a cookie file. curl joins every -b into
+        // one Cookie header and leaves it out when -H already sets one.
+        StringBuilder cookieHeader = new StringBuilder();
+        for (String cookieValue : commandLine.values(Flag.COOKIE)) {
+            if (cookieValue.isEmpty()) {
+                continue;
             }
+            if (isCookieFile(cookieValue)) {
+                String fileName = cookieValue.startsWith("@") ? cookieValue.substring(1) : cookieValue;
+                readsFiles = true;
+                try {
+                    String cookies = FileReferences.readCookies(FileReferences.resolve(fileName, baseDirectory), host);
+                    if (cookies != null) {
+                        appendCookies(cookieHeader, cookies);
+                    }
+                } catch (IOException | InvalidPathException e) {
+                    // curl silently ignores unreadable cookie files as well
+                    Log.warn(() -> "Skipping cookie file " + fileName + ": " + e.getMessage());
+                }
+            } else {
+                appendCookies(cookieHeader, cookieValue.trim());
+            }
+        }
+        if (cookieHeader.length() > 0) {
+            headers.addIfAbsent("Cookie", cookieHeader.toString());
         }
 
         // Basic auth via -u / --user
-        Matcher userMatcher = USER_PATTERN.matcher(curlCommand);
-        if (userMatcher.find()) {
-            String userPass = firstNonNull(userMatcher.group(1), userMatcher.group(2), userMatcher.group(3));
-            if (userMatcher.group(1) != null) {
-                userPass = unescapeDollarQuote(userPass);
-            }
-            if (userPass != null && !userPass.isEmpty()) {
-                addBasicAuthIfAbsent(headers, userPass);
-            }
+        String userPass = commandLine.last(Flag.USER);
+        if (userPass != null && !userPass.isEmpty()) {
+            addBasicAuthIfAbsent(headers, userPass);
         } else if (userInfo != null && !userInfo.isEmpty()) {
             addBasicAuthIfAbsent(headers, userInfo);
         }
+        stageStart = Metrics.Stage.HEADERS.record(stageStart);
 
-        // Extract request body (supports multiple -d / --data* flags)
-        List<String> dataParts = extractFlagValues(curlCommand, DATA_FLAG_PATTERN);
-        if (!dataParts.isEmpty()) {
-            body = String.join("&", dataParts);
-            if (!methodExplicit) {
-                requestMethod = "POST";
+        // Extract request body (supports multiple -d / --data* flags, @file references, -F forms and -T)
+        try {
+            String uploadFile = commandLine.last(Flag.UPLOAD_FILE);
+            if (uploadFile != null && !uploadFile.equals("-") && !uploadFile.equals(".")) {
+                body = RequestBody.ofFile(FileReferences.resolve(uploadFile, baseDirectory));
+                readsFiles = true;
+                if (!methodExplicit) {
+                    requestMethod = "PUT";
+                }
+            } else if (!commandLine.options(Flag.FORM).isEmpty()) {
+                if (!commandLine.options(Flag.DATA).isEmpty()) {
+                    // curl refuses this combination as well
+                    throw new IOException("-F/--form cannot be combined with -d/--data");
+                }
+                body = commandLine.form(headers, baseDirectory);
+                readsFiles |= body.readsFiles();
+                if (!methodExplicit) {
+                    requestMethod = "POST";
+                }
+            } else if (!commandLine.options(Flag.DATA).isEmpty()) {
+                body = RequestBody.of(commandLine.body(baseDirectory));
+                readsFiles |= commandLine.hasFileReferences();
+                if (!methodExplicit) {
+                    requestMethod = "POST";
+                }
             }
+        } catch (IOException | UncheckedIOException | InvalidPathException e) {
+            Log.error("Failed to build request body: " + e.getMessage());
+            failed(Metrics.Stage.BODY);
+            return null;
         }
+        Metrics.Stage.BODY.record(stageStart);
+        Metrics.Stage.PARSE.record(parseStart);
 
-        log("CurlParser.parseCurlCommand() complete: host: " + host + " path: " + path, api);
+        String parsedHost = host;
+        String parsedPath = path;
+        Log.debug(() -> "CurlParser.parseCurlCommand() complete: host: " + parsedHost + " path: " + parsedPath);
 
         if (host != null && path != null) {
-            return new CurlRequest(requestMethod, protocol, host, path, query, port, headers, body);
+            CurlRequest request = new CurlRequest(requestMethod, protocol, host, path, query, port, headers, body);
+            request.setReadsFiles(readsFiles);
+            request.setTimeouts(parseSeconds(commandLine.last(Flag.MAX_TIME)),
+                    parseSeconds(commandLine.last(Flag.CONNECT_TIMEOUT)));
+            return request;
         }
         return null;
     }
 
     /**
-     * Extract the request URL, ignoring URLs that appear inside header/cookie/data values.
+     * A --max-time / --connect-timeout value: seconds, possibly fractional. Zero, like curl, and values
+     * that cannot be parsed mean no limit.
      */
-    static String extractUrl(String curlCommand) {
-        // Prefer explicit --url
-        Pattern urlFlagPattern = Pattern.compile(
-                "--url\\s+(?:\\$'(https?://[^']+)'|['\"](https?://[^'\"]+)['\"]|(https?://\\S+))");
-        Matcher urlFlagMatcher = urlFlagPattern.matcher(curlCommand);
-        if (urlFlagMatcher.find()) {
-            String url = firstNonNull(urlFlagMatcher.group(1), urlFlagMatcher.group(2), urlFlagMatcher.group(3));
-            if (urlFlagMatcher.group(1) != null) {
-                return unescapeDollarQuote(url);
-            }
-            return stripTrailingCurlMeta(url);
-        }
-
-        // Mask regions that commonly embed URLs so they are not picked as the target
-        String searchable = maskEmbeddedUrlRegions(curlCommand);
-
-        Pattern dollarQuoteUrlPattern = Pattern.compile("\\$'(https?://[^']+)'");
-        Matcher dollarQuoteMatcher = dollarQuoteUrlPattern.matcher(searchable);
-        String lastUrl = null;
-        while (dollarQuoteMatcher.find()) {
-            lastUrl = unescapeDollarQuote(dollarQuoteMatcher.group(1));
-        }
-        if (lastUrl != null) {
-            return lastUrl;
-        }
-
-        Pattern quotedUrlPattern = Pattern.compile("['\"](https?://[^'\"]+)['\"]");
-        Matcher quotedMatcher = quotedUrlPattern.matcher(searchable);
-        while (quotedMatcher.find()) {
-            lastUrl = quotedMatcher.group(1);
+    static Duration parseSeconds(String value) {
+        if (value == null) {
+            return null;
         }
-        if (lastUrl != null) {
-            return lastUrl;
+        try {
+            double seconds = Double.parseDouble(value.trim());
+            if (!(seconds > 0) || Double.isInfinite(seconds)) {
+                return null;
+            }
+            return Duration.ofNanos((long) Math.min(seconds * 1e9, Long.MAX_VALUE));
+        } catch (NumberFormatException e) {
+            Log.warn(() -> "Ignoring invalid timeout: " + Log.summarize(value, 40));
+            return null;
         }
+    }
 
-        Pattern unquotedUrlPattern = Pattern.compile("(https?://[^\\s'\"]+)");
-        Matcher unquotedMatcher = unquotedUrlPattern.matcher(searchable);
-        while (unquotedMatcher.find()) {
-            lastUrl = stripTrailingCurlMeta(unquotedMatcher.group(1));
-        }
-        return lastUrl;
+    private static void failed(Metrics.Stage stage) {
+        stage.failed();
+        Metrics.Stage.PARSE.failed();
     }
 
     /**
-     * Replace header/cookie/data argument values with spaces (same length) so embedded URLs
-     * are not selected as the request target.
+     * Extract the request URL, ignoring URLs that appear inside header/cookie/data values.
      */
-    private static String maskEmbeddedUrlRegions(String curlCommand) {
-        char[] chars = curlCommand.toCharArray();
-        maskFlagValueRegions(chars, curlCommand, Pattern.compile("(?:--header|-H)(?:\\s+|=)"));
-        maskFlagValueRegions(chars, curlCommand, COOKIE_FLAG_PATTERN);
-        maskFlagValueRegions(chars, curlCommand, DATA_FLAG_PATTERN);
-        maskFlagValueRegions(chars, curlCommand, Pattern.compile("(?:--referer|-e)(?:\\s+|=)"));
-        maskFlagValueRegions(chars, curlCommand, Pattern.compile("(?:--user-agent|-A)(?:\\s+|=)"));
-        return new String(chars);
-    }
-
-    private static void maskFlagValueRegions(char[] chars, String source, Pattern flagPattern) {
-        Matcher flagMatcher = flagPattern.matcher(source);
-        while (flagMatcher.find()) {
-            int valueStart = flagMatcher.end();
-            if (valueStart >= source.length()) {
-                continue;
-            }
-            int valueEnd = findTokenEnd(source, valueStart);
-            for (int i = valueStart; i < valueEnd; i++) {
-                chars[i] = ' ';
-            }
+    static String extractUrl(String curlCommand) {
+        try (CurlLexer lexer = new CurlLexer(curlCommand)) {
+            return CommandLine.scan(lexer).url();
         }
     }
 
     /**
-     * Extract all values following a flag pattern (quoted, $'...', or unquoted tokens).
+     * Extract all values given to options of the given kind, in command order.
      */
-    static List<String> extractFlagValues(String command, Pattern flagPattern) {
-        List<String> values = new ArrayList<>();
-        Matcher flagMatcher = flagPattern.matcher(command);
-        while (flagMatcher.find()) {
-            int valueStart = flagMatcher.end();
-            if (valueStart >= command.length()) {
-                continue;
-            }
-            ParsedToken token = parseToken(command, valueStart);
-            if (token != null && token.value != null) {
-                values.add(token.value);
-            }
+    static List<String> extractFlagValues(String command, Flag flag) {
+        try (CurlLexer lexer = new CurlLexer(command)) {
+            return CommandLine.scan(lexer).values(flag);
         }
-        return values;
-    }
-
-    private static int findTokenEnd(String command, int start) {
-        ParsedToken token = parseToken(command, start);
-        return token == null ? start : token.endIndex;
     }
 
     /**
-     * Parse a shell-like token starting at {@code start}: $'...', '...', "...", or bare word.
+     * Whether parsing the command would read files (@file data, -T uploads or cookie files).
      */
-    private static ParsedToken parseToken(String command, int start) {
-        int i = start;
-        while (i < command.length() && Character.isWhitespace(command.charAt(i))) {
-            i++;
+    static boolean referencesFiles(String command) {
+        CommandLine commandLine;
+        try (CurlLexer lexer = new CurlLexer(command)) {
+            commandLine = CommandLine.scan(lexer);
         }
-        if (i >= command.length()) {
-            return null;
+        if (commandLine.hasFileReferences() || commandLine.last(Flag.UPLOAD_FILE) != null) {
+            return true;
         }
-
-        // ANSI-C quoted: $'...'
-        if (i + 1 < command.length() && command.charAt(i) == '$' && command.charAt(i + 1) == '\'') {
-            int j = i + 2;
-            StringBuilder sb = new StringBuilder();
-            while (j < command.length()) {
-                char c = command.charAt(j);
-                if (c == '\\' && j + 1 < command.length()) {
-                    sb.append(c).append(command.charAt(j + 1));
-                    j += 2;
-                    continue;
-                }
-                if (c == '\'') {
-                    return new ParsedToken(unescapeDollarQuote(sb.toString()), j + 1);
-                }
-                sb.append(c);
-                j++;
+        for (String cookie : commandLine.values(Flag.COOKIE)) {
+            if (isCookieFile(cookie)) {
+                return true;
             }
-            return new ParsedToken(unescapeDollarQuote(sb.toString()), command.length());
-        }
-
-        char quote = command.charAt(i);
-        if (quote == '\'' || quote == '"') {
-            int j = i + 1;
-            StringBuilder sb = new StringBuilder();
-            while (j < command.length()) {
-                char c = command.charAt(j);
-                if (quote == '"' && c == '\\' && j + 1 < command.length()) {
-                    char next = command.charAt(j + 1);
-                    switch (next) {
-                        case '"':
-                        case '\\':
-                        case '\'':
-                            sb.append(next);
-                            break;
-                        case 'n':
-                            sb.append('\n');
-                            break;
-                        case 'r':
-                            sb.append('\r');
-                            break;
-                        case 't':
-                            sb.append('\t');
-                            break;
-                        default:
-                            // Preserve unknown escapes as the escaped char (common for JSON \/)
-                            sb.append(next);
-                            break;
-                    }
-                    j += 2;
-                    continue;
-                }
-                if (c == quote) {
-                    return new ParsedToken(sb.toString(), j + 1);
-                }
-                sb.append(c);
-                j++;
-            }
-            return new ParsedToken(sb.toString(), command.length());
         }
+        return false;
+    }
 
-        // Unquoted token: stop at whitespace
-        int j = i;
-        while (j < command.length() && !Character.isWhitespace(command.charAt(j))) {
-            j++;
-        }
-        String raw = command.substring(i, j);
-        return new ParsedToken(stripTrailingCurlMeta(raw), j);
+    /**
+     * curl treats a -b value without '=' (or starting with '@') as the name of a cookie file.
+     */
+    private static boolean isCookieFile(String cookieValue) {
+        return cookieValue.indexOf('=') == -1 || cookieValue.startsWith("@");
+    }
+
+    private static boolean isHttpUrl(String word) {
+        return word.regionMatches(true, 0, "http://", 0, 7) || word.regionMatches(true, 0, "https://", 0, 8);
+    }
+
+    private static boolean isCurlProgram(String word) {
+        String name = word.substring(word.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        return name.equals("curl") || name.equals("curl.exe");
     }
 
     private static String stripTrailingCurlMeta(String value) {
         if (value == null || value.isEmpty()) {
             return value;
         }
+        int end = value.length();
         // Trim trailing backslash from line continuations accidentally glued on
-        while (value.endsWith("\\")) {
-            value = value.substring(0, value.length() - 1);
+        while (end > 0 && value.charAt(end - 1) == '\\') {
+            end--;
         }
         // Trim common trailing punctuation from unquoted URLs
-        while (!value.isEmpty()) {
-            char last = value.charAt(value.length() - 1);
+        while (end > 0) {
+            char last = value.charAt(end - 1);
             if (last == ';' || last == ',' || last == ')' || last == ']') {
-                value = value.substring(0, value.length() - 1);
+                end--;
             } else {
                 break;
             }
         }
-        return value;
+        return value.substring(0, end);
     }
 
-    private static void addHeaderIfAbsent(List<HttpHeader> headers, String headerLine) {
-        int colonIndex = headerLine.indexOf(':');
-        if (colonIndex == -1) {
+    private static void appendCookies(StringBuilder cookieHeader, String cookies) {
+        if (cookies.isEmpty()) {
             return;
         }
-        String name = headerLine.substring(0, colonIndex).trim();
-        String value = headerLine.substring(colonIndex + 1).trim();
-        if (name.isEmpty()) {
+        if (cookieHeader.length() > 0) {
+            cookieHeader.append("; ");
+        }
+        cookieHeader.append(cookies);
+    }
+
+    private static void addBasicAuthIfAbsent(HeaderList headers, String userPass) {
+        if (headers.contains("Authorization")) {
             return;
         }
-        for (HttpHeader existing : headers) {
-            if (existing.name().equalsIgnoreCase(name)) {
-                return;
+        String encoded = Base64.getEncoder().encodeToString(userPass.getBytes(StandardCharsets.UTF_8));
+        headers.add("Authorization", "Basic " + encoded);
+    }
+
+    /**
+     * Option values and the positional URL of one curl command, collected in a single lexer pass.
+     */
+    private static final class CommandLine {
+        private final Map<Flag, List<Option>> options = new EnumMap<>(Flag.class);
+        private String positionalUrl;
+
+        static CommandLine scan(CurlLexer lexer) {
+            CommandLine commandLine = new CommandLine();
+            boolean first = true;
+            boolean optionsEnded = false;
+
+            CurlLexer.Token token;
+            while ((token = lexer.next()) != null) {
+                if (first) {
+                    first = false;
+                    if (token.length() == token.headLength() && isCurlProgram(token.value())) {
+                        continue;
+                    }
+                }
+
+                // Options are matched on the token's head bytes so a spilled -d<value> stays on disk
+                if (!optionsEnded && token.isOption()) {
+                    if (token.byteAt(1) == '-' && token.length() == 2) {
+                        optionsEnded = true;
+                    } else if (token.byteAt(1) == '-') {
+                        commandLine.readLongOption(token, lexer);
+                    } else {
+                        commandLine.readShortOptions(token, lexer);
+                    }
+                } else if (token.startsWithIgnoreCase("http://") || token.startsWithIgnoreCase("https://")) {
+                    String word = token.value();
+                    commandLine.positionalUrl = token.quoted ? word : stripTrailingCurlMeta(word);
+                }
             }
+            return commandLine;
         }
-        headers.add(new HttpHeaderImpl(name, value));
-    }
 
-    private static void addBasicAuthIfAbsent(List<HttpHeader> headers, String userPass) {
-        for (HttpHeader existing : headers) {
-            if (existing.name().equalsIgnoreCase("Authorization")) {
+        private void readLongOption(CurlLexer.Token token, CurlLexer lexer) {
+            int eq = token.indexOf((byte) '=');
+            String name = token.text(2, eq == -1 ? token.headLength() : eq);
+            Flag flag = LONG_FLAGS.get(name);
+            if (flag == null) {
+                // Unknown long options are treated as switches
                 return;
             }
+            add(flag, eq == -1 ? lexer.next() : token.suffix(eq + 1));
+        }
+
+        /**
+         * Short options may be clustered ({@code -sSL}) and may carry their value attached ({@code -XPOST}).
+         */
+        private void readShortOptions(CurlLexer.Token token, CurlLexer lexer) {
+            for (int i = 1; i < token.headLength(); i++) {
+                Flag flag = SHORT_FLAGS.get((char) token.byteAt(i));
+                if (flag != null) {
+                    add(flag, i + 1 < token.length() ? token.suffix(i + 1) : lexer.next());
+                    return;
+                }
+            }
         }
-        String encoded = Base64.getEncoder().encodeToString(userPass.getBytes(StandardCharsets.UTF_8));
-        headers.add(new HttpHeaderImpl("Authorization", "Basic " + encoded));
-    }
 
-    private static String firstNonNull(String... values) {
-        for (String v : values) {
-            if (v != null) {
-                return v;
+        private void add(Flag flag, CurlLexer.Token value) {
+            if (value != null) {
+                options.computeIfAbsent(flag.group(), f -> new ArrayList<>()).add(new Option(flag, value));
             }
         }
-        return null;
-    }
 
-    private static String summarizeForLog(String curlCommand) {
-        String oneLine = curlCommand.replaceAll("\\s+", " ").trim();
-        if (oneLine.length() > 120) {
-            return oneLine.substring(0, 117) + "...";
+        List<Option> options(Flag flag) {
+            return options.getOrDefault(flag.group(), Collections.emptyList());
         }
-        return oneLine;
-    }
 
-    /**
-     * Unescape ANSI-C quoted string ($'...' syntax)
-     * Handles escape sequences like: \", \\, \', \n, \r, \t, \xHH, etc.
-     */
-    private static String unescapeDollarQuote(String str) {
-        if (str == null) {
-            return null;
+        List<String> values(Flag flag) {
+            List<Option> found = options(flag);
+            List<String> values = new ArrayList<>(found.size());
+            for (Option option : found) {
+                values.add(option.value.value());
+            }
+            return values;
         }
 
-        StringBuilder result = new StringBuilder();
-        int i = 0;
-        while (i < str.length()) {
-            if (str.charAt(i) == '\\' && i + 1 < str.length()) {
-                char next = str.charAt(i + 1);
-                switch (next) {
-                    case '"':
-                        result.append('"');
-                        i += 2;
-                        break;
-                    case '\\':
-                        result.append('\\');
-                        i += 2;
-                        break;
-                    case '\'':
-                        result.append('\'');
-                        i += 2;
-                        break;
-                    case 'n':
-                        result.append('\n');
-                        i += 2;
-                        break;
-                    case 'r':
-                        result.append('\r');
-                        i += 2;
-                        break;
-                    case 't':
-                        result.append('\t');
-                        i += 2;
-                        break;
-                    case 'x':
-                        if (i + 3 < str.length()) {
-                            try {
-                                String hex = str.substring(i + 2, i + 4);
-                                int value = Integer.parseInt(hex, 16);
-                                result.append((char) value);
-                                i += 4;
-                            } catch (NumberFormatException e) {
-                                result.append('\\');
-                                result.append(next);
-                                i += 2;
-                            }
-                        } else {
-                            result.append('\\');
-                            result.append(next);
-                            i += 2;
-                        }
-                        break;
-                    case 'u':
-                        if (i + 5 < str.length()) {
-                            try {
-                                String hex = str.substring(i + 2, i + 6);
-                                int value = Integer.parseInt(hex, 16);
-                                result.append((char) value);
-                                i += 6;
-                            } catch (NumberFormatException e) {
-                                result.append('\\');
-                                result.append(next);
-                                i += 2;
-                            }
-                        } else {
-                            result.append('\\');
-                            result.append(next);
-                            i += 2;
-                        }
-                        break;
-                    default:
-                        result.append('\\');
-                        result.append(next);
-                        i += 2;
-                        break;
+        String last(Flag flag) {
+            List<Option> found = options(flag);
+            return found.isEmpty() ? null : found.get(found.size() - 1).value.value();
+        }
+
+        /**
+         * An explicit --url wins; otherwise the last positional http(s) URL is the target.
+         */
+        String url() {
+            for (String url : values(Flag.URL)) {
+                if (isHttpUrl(url)) {
+                    return stripTrailingCurlMeta(url);
                 }
-            } else {
-                result.append(str.charAt(i));
-                i++;
             }
+            return positionalUrl;
+        }
+
+        /**
+         * The request body: all data arguments joined with '&', as curl does, without decoding them.
+         * {@code @file} arguments to --data and --data-binary are copied from disk straight into the
+         * body array; --data strips carriage returns and newlines from file contents like curl.
+         */
+        byte[] body(Path baseDirectory) throws IOException {
+            List<Option> parts = options(Flag.DATA);
+            if (parts.size() == 1 && !parts.get(0).isFileReference()) {
+                return parts.get(0).value.toByteArray();
+            }
+
+            Path[] files = new Path[parts.size()];
+            long[] sizes = new long[parts.size()];
+            long size = Math.max(0, parts.size() - 1);
+            for (int i = 0; i < parts.size(); i++) {
+                Option part = parts.get(i);
+                if (part.isFileReference()) {
+                    files[i] = FileReferences.resolve(part.value.value().substring(1), baseDirectory);
+                    sizes[i] = FileReferences.size(files[i]);
+                } else {
+                    sizes[i] = part.value.length();
+                }
+                size += sizes[i];
+            }
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Request body of " + size + " bytes is too large");
+            }
+
+            byte[] body = new byte[(int) size];
+            int offset = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                if (i > 0) {
+                    body[offset++] = '&';
+                }
+                if (files[i] != null) {
+                    int copied = FileReferences.copyInto(files[i], body, offset, (int) sizes[i]);
+                    if (parts.get(i).flag == Flag.DATA) {
+                        copied = stripNewlines(body, offset, copied);
+                    }
+                    offset += copied;
+                } else {
+                    parts.get(i).value.copyInto(body, offset);
+                    offset += (int) sizes[i];
+                }
+            }
+            return offset == body.length ? body : Arrays.copyOf(body, offset);
         }
-        return result.toString();
-    }
 
-    protected static void log(String toLog, MontoyaApi api) {
-        if (api != null) {
-            api.logging().logToOutput(toLog);
-        } else {
-            System.out.println(toLog);
+        /**
+         * The multipart body of the -F / --form arguments. Sets the Content-Type header, or adds the
+         * boundary to a multipart Content-Type given with -H, as curl does.
+         */
+        RequestBody form(HeaderList headers, Path baseDirectory) throws IOException {
+            MultipartForm form = new MultipartForm();
+            for (Option option : options(Flag.FORM)) {
+                form.add(option.value.value(), option.flag == Flag.FORM_STRING, baseDirectory);
+            }
+            String contentType = headers.first("Content-Type");
+            if (contentType == null) {
+                headers.add("Content-Type", form.contentType());
+            } else if (contentType.regionMatches(true, 0, "multipart/", 0, 10)
+                    && !contentType.toLowerCase(Locale.ROOT).contains("boundary=")) {
+                headers.set("Content-Type", contentType + "; boundary=" + form.boundary());
+            }
+            return form.finish();
+        }
+
+        boolean hasFileReferences() {
+            for (Option option : options(Flag.DATA)) {
+                if (option.isFileReference()) {
+                    return true;
+                }
+            }
+            for (Option option : options(Flag.FORM)) {
+                if (option.isFileReference()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int stripNewlines(byte[] bytes, int offset, int length) {
+            int write = offset;
+            for (int read = offset; read < offset + length; read++) {
+                if (bytes[read] != '\r' && bytes[read] != '\n') {
+                    bytes[write++] = bytes[read];
+                }
+            }
+            return write - offset;
         }
     }
 
-    private static final class ParsedToken {
-        final String value;
-        final int endIndex;
+    /**
+     * One option occurrence: the specific flag used and its value.
+     */
+    private static final class Option {
+        final Flag flag;
+        final CurlLexer.Token value;
 
-        ParsedToken(String value, int endIndex) {
+        Option(Flag flag, CurlLexer.Token value) {
+            this.flag = flag;
             this.value = value;
-            this.endIndex = endIndex;
+        }
+
+        /**
+         * {@code @file} for --data / --data-binary, {@code name=@file} or {@code name=<file} for -F;
+         * {@code @-} (stdin) has no meaning inside Burp and is kept literally.
+         */
+        boolean isFileReference() {
+            if (flag == Flag.FORM) {
+                return MultipartForm.readsFile(value.value());
+            }
+            long length = value.length();
+            return (flag == Flag.DATA || flag == Flag.DATA_BINARY) && length > 1 && value.byteAt(0) == '@'
+                    && !(length == 2 && value.byteAt(1) == '-');
         }
     }
 
@@ -507,20 +620,44 @@ public class CurlParser {
         private final String path;
         private final String query;
         private final Integer port;
-        private final List<HttpHeader> headers;
-        private final String body;
+        private final HeaderList headers;
+        private final RequestBody body;
+        private boolean readsFiles;
+        private Duration maxTime;
+        private Duration connectTimeout;
+
+        public CurlRequest(String method, String protocol, String host, String path, String query, Integer port, List<HttpHeader> headers, byte[] body) {
+            this(method, protocol, host, path, query, port, headers, RequestBody.of(body));
+        }
 
-        public CurlRequest(String method, String protocol, String host, String path, String query, Integer port, List<HttpHeader> headers, String body) {
+        CurlRequest(String method, String protocol, String host, String path, String query, Integer port, List<HttpHeader> headers, RequestBody body) {
             this.method = method;
             this.protocol = protocol;
             this.host = host;
             this.path = path;
             this.query = query;
             this.port = port;
-            this.headers = headers;
+            this.headers = HeaderList.copyOf(headers);
             this.body = body;
         }
 
+        /**
+         * Build a request from an absolute http(s) URL, e.g. one read from a HAR file.
+         * Returns null if the URL cannot be parsed.
+         */
+        public static CurlRequest fromUrl(String method, String url, List<HttpHeader> headers, String body) {
+            if (!isHttpUrl(url)) {
+                return null;
+            }
+            try {
+                URL parsed = new URL(url);
+                return new CurlRequest(method.toUpperCase(Locale.ROOT), parsed.getProtocol(), parsed.getHost(),
+                        parsed.getPath(), parsed.getQuery(), parsed.getPort(), headers, body.getBytes(StandardCharsets.UTF_8));
+            } catch (java.net.MalformedURLException mue) {
+                return null;
+            }
+        }
+
         public String getBaseUrl() {
             StringBuilder builder = new StringBuilder();
             builder.append(getProtocol())
@@ -567,12 +704,60 @@ public class CurlParser {
             return port;
         }
 
-        public List<HttpHeader> getHeaders() {
+        public HeaderList getHeaders() {
             return headers;
         }
 
+        /**
+         * The body decoded as UTF-8; use {@link #getBodyBytes()} to build requests.
+         */
         public String getBody() {
+            return new String(getBodyBytes(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * The body in one array. File contents (-T, -F @file) are read on every call.
+         */
+        public byte[] getBodyBytes() {
+            return body.toByteArray();
+        }
+
+        public long getBodyLength() {
+            return body.length();
+        }
+
+        RequestBody body() {
             return body;
         }
+
+        /**
+         * Whether the request includes content read from files, which may change between pastes.
+         */
+        public boolean readsFiles() {
+            return readsFiles;
+        }
+
+        void setReadsFiles(boolean readsFiles) {
+            this.readsFiles = readsFiles;
+        }
+
+        /**
+         * The --max-time limit for the whole transfer, or null if the command sets none.
+         */
+        public Duration getMaxTime() {
+            return maxTime;
+        }
+
+        /**
+         * The --connect-timeout limit, or null if the command sets none.
+         */
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        void setTimeouts(Duration maxTime, Duration connectTimeout) {
+            this.maxTime = maxTime;
+            this.connectTimeout = connectTimeout;
+        }
     }
 }
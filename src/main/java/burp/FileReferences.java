@@ -0,0 +1,130 @@
+package burp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads files named by curl arguments: {@code -d @file}, {@code --data-binary @file},
+ * {@code -T file} and cookie files given to {@code -b}.
+ * <p>
+ * File contents are read from the channel straight into the caller's destination array, with no
+ * intermediate buffer and no memory mapping, which would hold the file open (and locked on Windows)
+ * until the mapping is garbage collected. Files above {@link #getMaxFileBytes()} are rejected. The limit defaults to 512 MB and can
+ * be changed with the {@code pastecurl.maxFileBytes} system property.
+ */
+final class FileReferences {
+
+    static final long DEFAULT_MAX_FILE_BYTES = 512L * 1024 * 1024;
+
+    private static volatile long maxFileBytes = Long.getLong("pastecurl.maxFileBytes", DEFAULT_MAX_FILE_BYTES);
+
+    private FileReferences() {
+    }
+
+    static long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    static void setMaxFileBytes(long maxBytes) {
+        maxFileBytes = maxBytes;
+    }
+
+    /**
+     * Resolve a file name from a curl argument; {@code ~/} is expanded to the user's home directory
+     * and relative names are resolved against the working directory, as curl would.
+     */
+    static Path resolve(String name) {
+        return resolve(name, null);
+    }
+
+    /**
+     * Resolve a file name from a curl argument, with relative names resolved against
+     * {@code baseDirectory}, e.g. the directory of the script the command came from, or against the
+     * working directory when it is null.
+     */
+    static Path resolve(String name, Path baseDirectory) {
+        if (name.startsWith("~/")) {
+            return Paths.get(System.getProperty("user.home"), name.substring(2));
+        }
+        Path path = Paths.get(name);
+        return baseDirectory == null || path.isAbsolute() ? path : baseDirectory.resolve(path);
+    }
+
+    /**
+     * Size of a regular file, checked against the configured limit.
+     */
+    static long size(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("Not a readable file: " + path);
+        }
+        long size = Files.size(path);
+        if (size > maxFileBytes || size > Integer.MAX_VALUE - 8) {
+            throw new IOException("File " + path + " is " + size + " bytes, over the limit of "
+                    + Math.min(maxFileBytes, Integer.MAX_VALUE - 8) + " bytes");
+        }
+        return size;
+    }
+
+    /**
+     * Copy the whole file into {@code dest} starting at {@code offset}; returns the number of bytes copied.
+     */
+    static int copyInto(Path path, byte[] dest, int offset, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer target = ByteBuffer.wrap(dest, offset, length);
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // keep reading until the file is exhausted
+            }
+            return length - target.remaining();
+        }
+    }
+
+    /**
+     * Read the cookies for {@code host} from a Netscape-format cookie file (as written by
+     * {@code curl -c}) or from a file of {@code Set-Cookie:} / {@code name=value} lines.
+     * Returns a Cookie header value, or null if no cookie applies.
+     */
+    static String readCookies(Path path, String host) throws IOException {
+        size(path);
+        List<String> cookies = new ArrayList<>();
+        String lowerHost = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.startsWith("#HttpOnly_")) {
+                line = line.substring("#HttpOnly_".length());
+            } else if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\t");
+            if (fields.length >= 7) {
+                if (domainMatches(fields[0].toLowerCase(Locale.ROOT), lowerHost)) {
+                    cookies.add(fields[5] + "=" + fields[6]);
+                }
+                continue;
+            }
+
+            String cookie = line.regionMatches(true, 0, "Set-Cookie:", 0, 11) ? line.substring(11) : line;
+            int attributes = cookie.indexOf(';');
+            cookie = (attributes == -1 ? cookie : cookie.substring(0, attributes)).trim();
+            if (cookie.indexOf('=') > 0) {
+                cookies.add(cookie);
+            }
+        }
+        return cookies.isEmpty() ? null : String.join("; ", cookies);
+    }
+
+    private static boolean domainMatches(String domain, String host) {
+        if (domain.startsWith(".")) {
+            domain = domain.substring(1);
+        }
+        return host.equals(domain) || host.endsWith("." + domain);
+    }
+}
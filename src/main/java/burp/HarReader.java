@@ -0,0 +1,171 @@
+package burp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Streams the requests out of a HAR (HTTP Archive) file one entry at a time.
+ * <p>
+ * Only {@code log.entries[].request} is decoded. Responses, timings and every other member are
+ * skipped without being materialized, so browser exports with large response bodies can be imported
+ * in bounded memory.
+ */
+public class HarReader {
+
+    private int imported;
+    private int skipped;
+
+    /**
+     * Read every entry from {@code reader}, passing each decoded request to {@code handler} as soon as
+     * it is complete. Stops early if the current thread is interrupted.
+     */
+    public void read(Reader reader, Consumer<CurlParser.CurlRequest> handler) throws IOException {
+        JsonStreamReader json = new JsonStreamReader(reader);
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("log".equals(name) && json.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+                readLog(json, handler);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    private void readLog(JsonStreamReader json, Consumer<CurlParser.CurlRequest> handler) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("entries".equals(name) && json.peek() == JsonStreamReader.Token.BEGIN_ARRAY) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("HAR import cancelled");
+                    }
+                    CurlParser.CurlRequest request = readEntry(json);
+                    if (request != null) {
+                        imported++;
+                        handler.accept(request);
+                    } else {
+                        skipped++;
+                    }
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private CurlParser.CurlRequest readEntry(JsonStreamReader json) throws IOException {
+        CurlParser.CurlRequest request = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("request".equals(name) && json.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+                request = readRequest(json);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return request;
+    }
+
+    private CurlParser.CurlRequest readRequest(JsonStreamReader json) throws IOException {
+        String method = "GET";
+        String url = null;
+        HeaderList headers = new HeaderList();
+        String body = "";
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            switch (name) {
+                case "method":
+                    method = json.nextString();
+                    break;
+                case "url":
+                    url = json.nextString();
+                    break;
+                case "headers":
+                    readHeaders(json, headers);
+                    break;
+                case "postData":
+                    body = readPostData(json);
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+
+        if (url == null || method == null) {
+            return null;
+        }
+        return CurlParser.CurlRequest.fromUrl(method, url, headers, body);
+    }
+
+    private void readHeaders(JsonStreamReader json, HeaderList headers) throws IOException {
+        if (json.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+            json.skipValue();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            String name = null;
+            String value = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String key = json.nextName();
+                if ("name".equals(key)) {
+                    name = json.nextString();
+                } else if ("value".equals(key)) {
+                    value = json.nextString();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+
+            // HTTP/2 pseudo-headers are carried by the request line; Content-Length is recomputed
+            if (name != null && !name.startsWith(":") && !name.equalsIgnoreCase("Content-Length")) {
+                headers.add(name, value == null ? "" : value);
+            }
+        }
+        json.endArray();
+    }
+
+    private String readPostData(JsonStreamReader json) throws IOException {
+        if (json.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+            json.skipValue();
+            return "";
+        }
+        String text = "";
+        json.beginObject();
+        while (json.hasNext()) {
+            String key = json.nextName();
+            if ("text".equals(key)) {
+                String value = json.nextString();
+                text = value == null ? "" : value;
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return text;
+    }
+}
@@ -0,0 +1,373 @@
+package burp;
+
+import burp.api.montoya.http.message.HttpHeader;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Ordered multimap of request headers with case-insensitive name lookup.
+ * <p>
+ * Names and values are stored as spans of one shared character buffer and only turned into
+ * {@link HttpHeader} objects when read. Lookups go through an open-addressing table keyed by the
+ * ASCII case-folded name, with the occurrences of one name chained in insertion order, so adding
+ * hundreds of headers stays linear. Duplicates are kept, like curl sends repeated {@code -H} values.
+ */
+public class HeaderList extends AbstractList<HttpHeader> implements RandomAccess {
+
+    private static final int NONE = -1;
+
+    private char[] chars = new char[256];
+    private int charLength;
+
+    // Per entry: name start, name length, value start, value length
+    private int[] spans = new int[4 * 8];
+    private int[] hashes = new int[8];
+    private int[] nextSame = new int[8];
+    private int[] lastSame = new int[8];
+    private int size;
+    private int distinct;
+
+    // Open-addressing table of the first entry index for each distinct name
+    private int[] table = newTable(16);
+
+    public HeaderList() {
+    }
+
+    public static HeaderList copyOf(List<? extends HttpHeader> headers) {
+        if (headers instanceof HeaderList) {
+            return (HeaderList) headers;
+        }
+        HeaderList copy = new HeaderList();
+        if (headers != null) {
+            for (HttpHeader header : headers) {
+                copy.add(header.name(), header.value());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Append a header, keeping earlier ones with the same name.
+     */
+    public void add(String name, String value) {
+        int nameStart = appendChars(name);
+        int valueStart = appendChars(value);
+        appendEntry(nameStart, name.length(), valueStart, value.length(), hash(chars, nameStart, name.length()));
+    }
+
+    @Override
+    public boolean add(HttpHeader header) {
+        add(header.name(), header.value());
+        return true;
+    }
+
+    /**
+     * Append a header given as a {@code Name: value} line, the way curl's {@code -H} takes it.
+     * {@code Name;} adds a header with an empty value. Returns false for lines without a name.
+     */
+    public boolean addLine(String line) {
+        int separator = line.indexOf(':');
+        if (separator == -1) {
+            int semicolon = line.indexOf(';');
+            if (semicolon == -1 || !line.substring(semicolon + 1).isBlank()) {
+                return false;
+            }
+            separator = semicolon;
+        }
+        String name = line.substring(0, separator).trim();
+        if (name.isEmpty()) {
+            return false;
+        }
+        add(name, line.substring(separator + 1).trim());
+        return true;
+    }
+
+    /**
+     * Add a header unless one with the same name exists, returning whether it was added.
+     */
+    public boolean addIfAbsent(String name, String value) {
+        if (firstIndexOf(name) != NONE) {
+            return false;
+        }
+        add(name, value);
+        return true;
+    }
+
+    /**
+     * Replace every header with this name by a single one, kept at the position of the first.
+     */
+    public void set(String name, String value) {
+        int first = firstIndexOf(name);
+        if (first == NONE) {
+            add(name, value);
+            return;
+        }
+        int valueStart = appendChars(value);
+        spans[4 * first + 2] = valueStart;
+        spans[4 * first + 3] = value.length();
+        if (nextSame[first] != NONE) {
+            removeWhere(first, name);
+        }
+    }
+
+    /**
+     * Remove every header with this name, returning how many were removed.
+     */
+    public int removeAll(String name) {
+        if (firstIndexOf(name) == NONE) {
+            return 0;
+        }
+        return removeWhere(NONE, name);
+    }
+
+    public boolean contains(String name) {
+        return firstIndexOf(name) != NONE;
+    }
+
+    /**
+     * The value of the first header with this name, or null.
+     */
+    public String first(String name) {
+        int index = firstIndexOf(name);
+        return index == NONE ? null : value(index);
+    }
+
+    /**
+     * Values of every header with this name, in order.
+     */
+    public List<String> values(String name) {
+        List<String> values = new ArrayList<>(2);
+        for (int i = firstIndexOf(name); i != NONE; i = nextSame[i]) {
+            values.add(value(i));
+        }
+        return values;
+    }
+
+    /**
+     * Whether the header at this index is the first one with its name.
+     */
+    public boolean isFirstOccurrence(int index) {
+        checkIndex(index);
+        return firstIndexOf(chars, spans[4 * index], spans[4 * index + 1], hashes[index]) == index;
+    }
+
+    public String name(int index) {
+        checkIndex(index);
+        return new String(chars, spans[4 * index], spans[4 * index + 1]);
+    }
+
+    public String value(int index) {
+        checkIndex(index);
+        return new String(chars, spans[4 * index + 2], spans[4 * index + 3]);
+    }
+
+    @Override
+    public HttpHeader get(int index) {
+        return HttpHeaderImpl.of(name(index), value(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        charLength = 0;
+        size = 0;
+        distinct = 0;
+        Arrays.fill(table, NONE);
+        modCount++;
+    }
+
+    private int firstIndexOf(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + foldCase(name.charAt(i));
+        }
+        int mask = table.length - 1;
+        for (int slot = mix(h) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+            int index = table[slot];
+            if (hashes[index] == h && nameEquals(index, name)) {
+                return index;
+            }
+        }
+        return NONE;
+    }
+
+    private int firstIndexOf(char[] source, int start, int length, int h) {
+        int mask = table.length - 1;
+        for (int slot = mix(h) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+            int index = table[slot];
+            if (hashes[index] == h && regionEqualsIgnoreCase(chars, spans[4 * index], spans[4 * index + 1], source, start, length)) {
+                return index;
+            }
+        }
+        return NONE;
+    }
+
+    private void appendEntry(int nameStart, int nameLength, int valueStart, int valueLength, int h) {
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            spans = Arrays.copyOf(spans, 4 * capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            nextSame = Arrays.copyOf(nextSame, capacity);
+            lastSame = Arrays.copyOf(lastSame, capacity);
+        }
+        int index = size++;
+        spans[4 * index] = nameStart;
+        spans[4 * index + 1] = nameLength;
+        spans[4 * index + 2] = valueStart;
+        spans[4 * index + 3] = valueLength;
+        hashes[index] = h;
+        nextSame[index] = NONE;
+        lastSame[index] = index;
+        modCount++;
+
+        int first = firstIndexOf(chars, nameStart, nameLength, h);
+        if (first != NONE) {
+            nextSame[lastSame[first]] = index;
+            lastSame[first] = index;
+            return;
+        }
+        if (2 * (distinct + 1) > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(index);
+    }
+
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int slot = mix(hashes[index]) & mask;
+        while (table[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index;
+        distinct++;
+    }
+
+    private void rehash(int capacity) {
+        boolean[] chained = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            if (nextSame[i] != NONE) {
+                chained[nextSame[i]] = true;
+            }
+        }
+        table = newTable(capacity);
+        distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (!chained[i]) {
+                insert(i);
+            }
+        }
+    }
+
+    /**
+     * Remove the headers with this name except the one at {@code keep}, then rebuild the index. Linear
+     * in the number of headers, which is fine for the rare replace/remove calls.
+     */
+    private int removeWhere(int keep, String name) {
+        int removed = 0;
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (i != keep && nameEquals(i, name)) {
+                removed++;
+                continue;
+            }
+            if (target != i) {
+                System.arraycopy(spans, 4 * i, spans, 4 * target, 4);
+                hashes[target] = hashes[i];
+            }
+            target++;
+        }
+        size = target;
+        reindex();
+        modCount++;
+        return removed;
+    }
+
+    private void reindex() {
+        table = newTable(Math.max(16, Integer.highestOneBit(Math.max(1, size)) * 4));
+        distinct = 0;
+        for (int i = 0; i < size; i++) {
+            nextSame[i] = NONE;
+            lastSame[i] = i;
+            int first = firstIndexOf(chars, spans[4 * i], spans[4 * i + 1], hashes[i]);
+            if (first != NONE) {
+                nextSame[lastSame[first]] = i;
+                lastSame[first] = i;
+            } else {
+                insert(i);
+            }
+        }
+    }
+
+    private int appendChars(String s) {
+        int start = charLength;
+        int length = s.length();
+        if (charLength + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charLength + length));
+        }
+        s.getChars(0, length, chars, charLength);
+        charLength += length;
+        return start;
+    }
+
+    private boolean nameEquals(int index, String name) {
+        int start = spans[4 * index];
+        int length = spans[4 * index + 1];
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (foldCase(chars[start + i]) != foldCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    private static boolean regionEqualsIgnoreCase(char[] a, int aStart, int aLength, char[] b, int bStart, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (foldCase(a[aStart + i]) != foldCase(b[bStart + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] source, int start, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + foldCase(source[start + i]);
+        }
+        return h;
+    }
+
+    private static char foldCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, NONE);
+        return table;
+    }
+}
@@ -12,6 +12,14 @@ public class HttpHeaderImpl implements HttpHeader {
         this.value = value;
     }
 
+    /**
+     * Typed as the interface so that callers do not make the verifier load Montoya classes, which
+     * keeps HeaderList usable from the command line without the Montoya API on the classpath.
+     */
+    static HttpHeader of(String name, String value) {
+        return new HttpHeaderImpl(name, value);
+    }
+
     @Override
     public String name() {
         return name;
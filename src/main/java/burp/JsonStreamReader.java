@@ -0,0 +1,271 @@
+package burp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull parser for JSON documents that are too large to load at once.
+ * <p>
+ * Reads from a {@link Reader} through a fixed-size buffer. Values the caller is not interested in
+ * can be passed over with {@link #skipValue()}, which never builds strings, so memory use is bounded
+ * by the largest value the caller actually reads. Separators ({@code ,} and {@code :}) are treated
+ * like whitespace; callers rely on the structure of the document they expect.
+ */
+final class JsonStreamReader implements Closeable {
+
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, LITERAL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    JsonStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    Token peek() throws IOException {
+        int c = peekSignificant();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return Token.STRING;
+            default:
+                return Token.LITERAL;
+        }
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * Whether the current object or array has another member.
+     */
+    boolean hasNext() throws IOException {
+        int c = peekSignificant();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    String nextName() throws IOException {
+        return nextString();
+    }
+
+    /**
+     * Read a string value; numbers and booleans are returned as their literal text and null as null.
+     */
+    String nextString() throws IOException {
+        int c = peekSignificant();
+        if (c == '"') {
+            pos++;
+            return readString();
+        }
+        if (c == -1 || c == '{' || c == '[' || c == '}' || c == ']') {
+            throw syntaxError("Expected a value");
+        }
+        String literal = readLiteral();
+        return literal.equals("null") ? null : literal;
+    }
+
+    /**
+     * Skip the next value, including nested objects and arrays, without materializing it.
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int c = peekSignificant();
+            switch (c) {
+                case -1:
+                    throw syntaxError("Unexpected end of document");
+                case '{':
+                case '[':
+                    pos++;
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    pos++;
+                    depth--;
+                    break;
+                case '"':
+                    pos++;
+                    skipString();
+                    break;
+                default:
+                    skipLiteral();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peekSignificant() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private int peekSignificant() throws IOException {
+        while (true) {
+            if (pos >= limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == ':') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            pos = limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int runStart = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            sb.append(buffer, runStart, pos - runStart);
+            if (pos >= limit) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+                continue;
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return sb.toString();
+            }
+            sb.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u': {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid \\u escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            }
+            default:
+                return c;
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            if (pos >= limit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                nextChar();
+            }
+        }
+    }
+
+    private String readLiteral() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (isLiteralEnd(c)) {
+                break;
+            }
+            sb.append(c);
+            pos++;
+        }
+        return sb.toString();
+    }
+
+    private void skipLiteral() throws IOException {
+        while (pos < limit || fill()) {
+            if (isLiteralEnd(buffer[pos])) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private static boolean isLiteralEnd(char c) {
+        return c == ',' || c == ':' || c == '}' || c == ']' || c == '"' || c == '{' || c == '['
+                || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private char nextChar() throws IOException {
+        if (pos >= limit && !fill()) {
+            throw syntaxError("Unexpected end of document");
+        }
+        return buffer[pos++];
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,293 @@
+package burp;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Sends one request a number of times at a fixed concurrency, optionally paced to a target rate, and
+ * reports a latency histogram with status and error breakdowns.
+ * <p>
+ * With a rate, request {@code i} is due at {@code i / rate} seconds after the start and its latency
+ * is measured from that due time, so a server that stalls is charged for the requests queued behind
+ * it instead of hiding them (coordinated omission). A {@code --max-time} limit is enforced per
+ * request: the probe stops waiting and records a timeout, but the send keeps its concurrency slot
+ * until it really returns, so a slow target never has more than {@code concurrency} requests in
+ * flight. Montoya does not expose the connection phase, so {@code --connect-timeout} is not enforced;
+ * the report says so rather than guessing which failures were slow connects.
+ */
+final class LoadProbe {
+
+    private final int requests;
+    private final int concurrency;
+    private final long intervalNanos;
+    private final Duration maxTime;
+    private final Duration connectTimeout;
+    private final Clock clock;
+    private volatile boolean cancelled;
+
+    /**
+     * @param ratePerSecond target request rate, or 0 to send as fast as the concurrency allows
+     */
+    LoadProbe(int requests, int concurrency, double ratePerSecond, Duration maxTime, Duration connectTimeout) {
+        this(requests, concurrency, ratePerSecond, maxTime, connectTimeout, Clock.SYSTEM);
+    }
+
+    LoadProbe(int requests, int concurrency, double ratePerSecond, Duration maxTime, Duration connectTimeout,
+              Clock clock) {
+        if (requests < 1 || concurrency < 1 || ratePerSecond < 0) {
+            throw new IllegalArgumentException("Invalid load probe settings: " + requests + " requests, concurrency "
+                    + concurrency + ", rate " + ratePerSecond);
+        }
+        this.requests = requests;
+        this.concurrency = Math.min(concurrency, requests);
+        this.intervalNanos = ratePerSecond == 0 ? 0 : (long) (1e9 / ratePerSecond);
+        this.maxTime = maxTime;
+        this.connectTimeout = connectTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Time source for pacing and latencies. The {@code --max-time} wait always uses real time.
+     */
+    interface Clock {
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void sleepUntil(long deadline) throws InterruptedException {
+                long now;
+                while ((now = System.nanoTime()) - deadline < 0) {
+                    TimeUnit.NANOSECONDS.sleep(deadline - now);
+                }
+            }
+        };
+
+        long nanoTime();
+
+        void sleepUntil(long deadline) throws InterruptedException;
+    }
+
+    /**
+     * Sends the request once and returns the response status.
+     */
+    interface Sender {
+        int send() throws Exception;
+    }
+
+    /**
+     * Send all requests and return the report; {@code completed} gets the running count of finished
+     * requests, from the sending threads.
+     *
+     * @throws InterruptedException if the calling thread is interrupted; requests not yet started are
+     *                              dropped
+     */
+    Report run(Sender sender, IntConsumer completed) throws InterruptedException {
+        Report report = new Report(requests);
+        report.connectTimeoutIgnored = connectTimeout != null;
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, daemon("Paste cURL load probe"));
+        // With --max-time each send runs here so the worker can stop waiting for it; the slots bound
+        // the sends really in flight, including the ones the worker gave up on
+        ExecutorService sends = maxTime == null ? null : Executors.newCachedThreadPool(daemon("Paste cURL load probe send"));
+        Semaphore slots = new Semaphore(concurrency);
+        long start = clock.nanoTime();
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(() -> {
+                    int index;
+                    while (!cancelled && (index = next.getAndIncrement()) < requests) {
+                        if (!send(sender, sends, slots, start + index * intervalNanos, report)) {
+                            return;
+                        }
+                        completed.accept(done.incrementAndGet());
+                    }
+                });
+            }
+            workers.shutdown();
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting; interruption cancels below
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            workers.shutdownNow();
+            throw e;
+        } finally {
+            if (sends != null) {
+                sends.shutdownNow();
+            }
+            report.elapsedNanos = clock.nanoTime() - start;
+        }
+        return report;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Send one request no earlier than {@code due}; returns false if the worker was interrupted.
+     */
+    private boolean send(Sender sender, ExecutorService sends, Semaphore slots, long due, Report report) {
+        long start;
+        if (intervalNanos > 0) {
+            try {
+                clock.sleepUntil(due);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            start = due;
+        } else {
+            start = clock.nanoTime();
+        }
+        try {
+            int status;
+            if (sends == null) {
+                report.sent.increment();
+                status = sender.send();
+            } else {
+                slots.acquire();
+                report.sent.increment();
+                // Whoever claims the send first owns the slot: the send once it starts, or the worker
+                // if it gives up before the send was picked up
+                AtomicBoolean claimed = new AtomicBoolean();
+                Future<Integer> response = sends.submit(() -> {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return 0;
+                    }
+                    try {
+                        return sender.send();
+                    } finally {
+                        slots.release();
+                    }
+                });
+                try {
+                    status = response.get(maxTime.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (claimed.compareAndSet(false, true)) {
+                        slots.release();
+                    }
+                    // Burp's blocking send ignores the interrupt; its slot stays taken until it returns
+                    response.cancel(true);
+                    report.error("Timed out after " + maxTime.toMillis() + " ms (--max-time)");
+                    return true;
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            report.latency.record(clock.nanoTime() - start);
+            report.status(status);
+        } catch (InterruptedException e) {
+            return false;
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            report.error(Log.summarize(message, 100));
+        }
+        return true;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Outcome of a probe: latencies of the requests that got a response, and counts per status and
+     * per error.
+     */
+    static final class Report {
+        final int requests;
+        final Histogram latency = new Histogram();
+        final LongAdder sent = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        long elapsedNanos;
+        boolean connectTimeoutIgnored;
+
+        Report(int requests) {
+            this.requests = requests;
+        }
+
+        void status(int status) {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        void error(String error) {
+            errors.computeIfAbsent(error, e -> new LongAdder()).increment();
+        }
+
+        /**
+         * Number of responses per status code, in status order.
+         */
+        Map<Integer, Long> statuses() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+
+        /**
+         * Number of failed requests per error message, in message order.
+         */
+        Map<String, Long> errors() {
+            Map<String, Long> counts = new TreeMap<>();
+            errors.forEach((error, count) -> counts.put(error, count.sum()));
+            return counts;
+        }
+
+        long errorCount() {
+            long count = 0;
+            for (LongAdder adder : errors.values()) {
+                count += adder.sum();
+            }
+            return count;
+        }
+
+        String describe() {
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("Requests:  %d of %d sent in %.2f s (%.1f req/s), %d responses, %d errors%n",
+                    sent.sum(), requests, seconds, seconds > 0 ? sent.sum() / seconds : 0.0, latency.count(), errorCount()));
+            if (latency.count() > 0) {
+                text.append(String.format("Latency:   p50 %s  p90 %s  p99 %s  p99.9 %s  max %s  mean %s ms%n",
+                        millis(latency.percentile(50)), millis(latency.percentile(90)), millis(latency.percentile(99)),
+                        millis(latency.percentile(99.9)), millis(latency.max()), millis((long) latency.mean())));
+            }
+            if (!statuses.isEmpty()) {
+                text.append("Status:   ");
+                statuses().forEach((status, count) -> text.append(' ').append(status).append(" x ").append(count));
+                text.append(System.lineSeparator());
+            }
+            errors().forEach((error, count) -> text.append("Error:     ").append(error).append(" x ").append(count)
+                    .append(System.lineSeparator()));
+            if (connectTimeoutIgnored) {
+                text.append("Note:      --connect-timeout is not enforced, Burp does not expose the connection phase")
+                        .append(System.lineSeparator());
+            }
+            return text.toString();
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.1f", nanos / 1_000_000.0);
+        }
+    }
+}
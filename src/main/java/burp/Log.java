@@ -0,0 +1,174 @@
+package burp;
+
+import burp.api.montoya.logging.Logging;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Levelled logging facade over Montoya {@link Logging}.
+ * <p>
+ * Messages are passed as {@link Supplier}s and only formatted when their level is enabled, so
+ * disabled debug logging costs nothing on the parse path. Every emitted message is also kept in a
+ * small in-memory ring buffer that can be shown for troubleshooting. Without Burp (tests, command
+ * line) messages go to stdout/stderr. The initial level comes from the {@code pastecurl.logLevel}
+ * system property and defaults to INFO.
+ */
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    private static final int RECENT_CAPACITY = 512;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private static volatile Logging logging;
+    private static volatile Level level = parseLevel(System.getProperty("pastecurl.logLevel"), Level.INFO);
+    private static volatile boolean stderrOnly;
+
+    private static final AtomicReferenceArray<String> recent = new AtomicReferenceArray<>(RECENT_CAPACITY);
+    private static final AtomicLong recentCount = new AtomicLong();
+
+    private Log() {
+    }
+
+    public static void setLogging(Logging montoyaLogging) {
+        logging = montoyaLogging;
+    }
+
+    /**
+     * Without a Logging target, send every level to stderr so stdout stays free for command-line output.
+     */
+    static void setStderrOnly(boolean enabled) {
+        stderrOnly = enabled;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0;
+    }
+
+    public static void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            emit(Level.DEBUG, message.get(), null);
+        }
+    }
+
+    public static void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            emit(Level.INFO, message.get(), null);
+        }
+    }
+
+    public static void warn(Supplier<String> message) {
+        if (isEnabled(Level.WARN)) {
+            emit(Level.WARN, message.get(), null);
+        }
+    }
+
+    public static void error(String message) {
+        emit(Level.ERROR, message, null);
+    }
+
+    public static void error(String message, Throwable throwable) {
+        emit(Level.ERROR, message, throwable);
+    }
+
+    /**
+     * The most recent messages, oldest first.
+     */
+    public static List<String> recent() {
+        long end = recentCount.get();
+        long start = Math.max(0, end - RECENT_CAPACITY);
+        List<String> messages = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            String message = recent.get((int) (i % RECENT_CAPACITY));
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * A one-line summary of a possibly huge text, computed from a bounded prefix only.
+     */
+    public static String summarize(CharSequence text, int maxLength) {
+        StringBuilder sb = new StringBuilder(maxLength + 3);
+        boolean pendingSpace = false;
+        int limit = Math.min(text.length(), maxLength * 4);
+        int i = 0;
+        for (; i < limit && sb.length() < maxLength; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        if (i < text.length()) {
+            sb.setLength(Math.min(sb.length(), maxLength - 3));
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+
+    static Level parseLevel(String name, Level fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    private static void emit(Level messageLevel, String message, Throwable throwable) {
+        String line = "Paste cURL: " + message;
+        long index = recentCount.getAndIncrement();
+        recent.set((int) (index % RECENT_CAPACITY), LocalTime.now().format(TIME) + " " + messageLevel + " " + message
+                + (throwable == null ? "" : " (" + throwable + ")"));
+
+        Logging target = logging;
+        if (target == null) {
+            if (stderrOnly || messageLevel.compareTo(Level.WARN) >= 0) {
+                System.err.println(line);
+                if (throwable != null) {
+                    throwable.printStackTrace();
+                }
+            } else {
+                System.out.println(line);
+            }
+            return;
+        }
+
+        if (messageLevel.compareTo(Level.WARN) >= 0) {
+            if (throwable != null) {
+                target.logToError(line, throwable);
+            } else {
+                target.logToError(line);
+            }
+        } else {
+            target.logToOutput(line);
+        }
+    }
+}
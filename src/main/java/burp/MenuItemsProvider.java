@@ -1,27 +1,93 @@
 package burp;
 
 import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ByteArray;
 import burp.api.montoya.http.HttpService;
 import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.proxy.ProxyHttpRequestResponse;
 import burp.api.montoya.ui.contextmenu.ContextMenuEvent;
 import burp.api.montoya.ui.contextmenu.ContextMenuItemsProvider;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.ActionEvent;
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class MenuItemsProvider implements ContextMenuItemsProvider {
 
     private MontoyaApi api;
 
+    private RequestHistory history;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Paste cURL worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService previewExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Paste cURL preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int REPEATER_BATCH_SIZE = 50;
+
+    private static final String NO_CURL_MESSAGE = "Ensure the clipboard contains a valid curl command with an http(s) URL.";
+
+    // How long menu construction may wait for the clipboard preview before showing the plain label
+    private static final long PREVIEW_WAIT_MS = 40;
+
+    // Larger single commands are parsed from a clipboard reader instead of one string
+    private static final int STREAM_THRESHOLD_CHARS = 4 * 1024 * 1024;
+
+    private static final int READ_CHUNK_CHARS = 8 * 1024;
+
+    private volatile CompletableFuture<ClipboardPreview> pendingPreview;
+
+    // The last finished preview; shown at once on the next right-click while it is refreshed
+    private volatile ClipboardPreview lastPreview;
+
+    private final ParseCache<HttpRequest> parseCache = new ParseCache<>();
+
+    private final ForkJoinPool parsePool = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
     public MenuItemsProvider() {
         //noop
     }
@@ -30,37 +96,912 @@ public class MenuItemsProvider implements ContextMenuItemsProvider {
         this.api = api;
     }
 
+    /**
+     * @param history where requests sent to Repeater or the site map are remembered; not read until
+     *                the history is first used
+     */
+    MenuItemsProvider(MontoyaApi api, RequestHistory history) {
+        this.api = api;
+        this.history = history;
+    }
+
     @Override
     public List<Component> provideMenuItems(ContextMenuEvent event) {
         List<Component> menuItemList = new ArrayList<>();
 
-        JMenuItem pasteItem = new JMenuItem("Paste cURL command");
+        ClipboardPreview previous = lastPreview;
+        CompletableFuture<ClipboardPreview> preview = startPreview();
+
+        JMenuItem pasteItem = new JMenuItem(ClipboardPreview.PASTE_LABEL);
+        JMenuItem pasteAllItem = new JMenuItem("Paste all cURL commands");
+        JMenuItem replayItem = new JMenuItem("Replay all cURL commands...");
+        JMenuItem loadTestItem = new JMenuItem("Load test cURL command...");
+        JMenuItem importHarItem = new JMenuItem("Import HAR file...");
+        JMenuItem importScriptsItem = new JMenuItem("Import cURL scripts...");
+
+        showPreview(pasteItem, previous, preview);
         pasteItem.addActionListener((ActionEvent e) -> {
-            String curlRequest = getClipboardContent();
-            if (curlRequest == null || curlRequest.isBlank()) {
+            ClipboardPreview ready = preview.getNow(null);
+            if (ready != null && ready.request != null) {
+                runInBackground(progress -> {
+                    sendToRepeater(ready.request);
+                    Log.info(() -> "sent request to Repeater");
+                });
+            } else {
+                runInBackground(this::pasteFromClipboard);
+            }
+        });
+
+        pasteAllItem.addActionListener((ActionEvent e) -> runInBackground(this::pasteAllFromClipboard));
+        replayItem.addActionListener((ActionEvent e) -> replayFromClipboard());
+        loadTestItem.addActionListener((ActionEvent e) -> loadTestFromClipboard());
+        importHarItem.addActionListener((ActionEvent e) -> importHarFile());
+        importScriptsItem.addActionListener((ActionEvent e) -> importScripts());
+
+        menuItemList.add(pasteItem);
+        menuItemList.add(pasteAllItem);
+        menuItemList.add(replayItem);
+        menuItemList.add(loadTestItem);
+        menuItemList.add(importHarItem);
+        menuItemList.add(importScriptsItem);
+
+        if (history != null && history.isEnabled()) {
+            JMenuItem historyItem = new JMenuItem("Paste from history...");
+            historyItem.addActionListener((ActionEvent e) -> runInBackground(this::pasteFromHistory));
+            menuItemList.add(historyItem);
+        }
+
+        List<HttpRequestResponse> selected = event.selectedRequestResponses();
+        if (!selected.isEmpty()) {
+            JMenuItem copyItem = new JMenuItem(selected.size() == 1 ? "Copy as cURL" : "Copy " + selected.size() + " requests as cURL");
+            copyItem.addActionListener((ActionEvent e) -> runInBackground(progress -> copyAsCurl(selected, progress)));
+            JMenuItem exportItem = new JMenuItem("Export selected as cURL script...");
+            exportItem.addActionListener((ActionEvent e) -> exportAsCurl(() -> requestsOf(selected)));
+            menuItemList.add(copyItem);
+            menuItemList.add(exportItem);
+        }
+        JMenuItem exportHistoryItem = new JMenuItem("Export proxy history as cURL script...");
+        exportHistoryItem.addActionListener((ActionEvent e) -> exportAsCurl(() -> {
+            List<HttpRequest> requests = new ArrayList<>();
+            for (ProxyHttpRequestResponse item : api.proxy().history()) {
+                requests.add(item.finalRequest());
+            }
+            return requests;
+        }));
+        menuItemList.add(exportHistoryItem);
+        return menuItemList;
+    }
+
+    /**
+     * Stop the background worker; called when the extension is unloaded.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        previewExecutor.shutdownNow();
+        parsePool.shutdownNow();
+    }
+
+    /**
+     * Start reading and parsing the clipboard in the background while the menu is being shown.
+     * Any preview still running for a previous menu is abandoned.
+     */
+    private CompletableFuture<ClipboardPreview> startPreview() {
+        CompletableFuture<ClipboardPreview> previous = pendingPreview;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        CompletableFuture<ClipboardPreview> preview = CompletableFuture.supplyAsync(this::sniffClipboard, previewExecutor);
+        preview.thenAccept(ready -> lastPreview = ready);
+        pendingPreview = preview;
+        return preview;
+    }
+
+    /**
+     * Only the first {@link ClipboardSniffer#SNIFF_CHARS} characters of the clipboard are read here;
+     * larger clipboards are not parsed speculatively and take the normal path when clicked. Contents
+     * the last preview was read from are not read again, and the same text is not parsed again.
+     */
+    private ClipboardPreview sniffClipboard() {
+        ClipboardPreview previous = lastPreview;
+        Transferable contents = Toolkit.getDefaultToolkit().getSystemClipboard().getContents(null);
+        if (previous != null && previous.isFrom(contents)) {
+            return previous;
+        }
+
+        ClipboardSniffer sniffer;
+        try (Reader reader = openClipboardReader(contents)) {
+            sniffer = reader == null ? null : new ClipboardSniffer(reader);
+        } catch (IOException | UnsupportedFlavorException e) {
+            Log.debug(() -> "clipboard preview failed: " + e);
+            return ClipboardPreview.NONE;
+        }
+        if (sniffer == null || !sniffer.looksLikeCurl()) {
+            return new ClipboardPreview(contents, null, null, "no curl detected");
+        }
+        if (!sniffer.isComplete()) {
+            // Too expensive to do on every right-click
+            return new ClipboardPreview(contents, null, null, null);
+        }
+        String clipboard;
+        try {
+            clipboard = sniffer.readAll();
+        } catch (IOException e) {
+            return ClipboardPreview.NONE;
+        }
+        if (CurlParser.referencesFiles(clipboard)) {
+            // The referenced files may change, so this is never reused
+            return ClipboardPreview.NONE;
+        }
+        ParseCache.Key key = ParseCache.Key.of(clipboard);
+        if (previous != null && previous.matches(key)) {
+            return previous.from(contents);
+        }
+        HttpRequest request = parseCurlRequest(clipboard);
+        if (request == null) {
+            return new ClipboardPreview(contents, key, null, "no curl detected");
+        }
+        return new ClipboardPreview(contents, key, request,
+                ClipboardPreview.describe(request.method(), request.httpService().host(), request.path()));
+    }
+
+    /**
+     * Label the menu item from the last preview straight away, then relabel it if the refreshed
+     * preview differs. Only the first menu, with no earlier preview, waits for the clipboard, and never
+     * longer than {@link #PREVIEW_WAIT_MS}.
+     */
+    private void showPreview(JMenuItem item, ClipboardPreview previous, CompletableFuture<ClipboardPreview> preview) {
+        if (previous != null) {
+            item.setText(previous.label());
+        } else {
+            try {
+                item.setText(preview.get(PREVIEW_WAIT_MS, TimeUnit.MILLISECONDS).label());
+                return;
+            } catch (TimeoutException e) {
+                // Relabelled below once it arrives
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                // Fall back to the plain label and the lazy paste path
+                return;
+            }
+        }
+        preview.thenAccept(ready -> SwingUtilities.invokeLater(() -> item.setText(ready.label())));
+    }
+
+    private void sendToRepeater(HttpRequest request) {
+        send(request);
+        remember(request);
+    }
+
+    /**
+     * Send to Repeater without adding to the history, for requests that came from it.
+     */
+    private void send(HttpRequest request) {
+        long start = Metrics.start();
+        try {
+            api.repeater().sendToRepeater(request);
+        } catch (RuntimeException e) {
+            Metrics.Stage.SEND_TO_REPEATER.failed();
+            throw e;
+        }
+        Metrics.Stage.SEND_TO_REPEATER.record(start);
+    }
+
+    /**
+     * Add a request to the persistent history; failures there never stop a paste.
+     */
+    private void remember(HttpRequest request) {
+        if (history == null || !history.isEnabled()) {
+            return;
+        }
+        try {
+            HttpService service = request.httpService();
+            // Check the size first so a body too large to keep is never copied out of Burp
+            ByteArray body = request.body();
+            byte[] bytes = history.keepsBody(body.length()) ? body.getBytes() : RequestHistory.NO_BODY;
+            history.add(new RequestHistory.Entry(System.currentTimeMillis(), service.secure(), service.host(),
+                    service.port(), request.method(), request.path(), request.httpVersion(), request.headers(),
+                    bytes, body.length()));
+        } catch (RuntimeException e) {
+            Log.error("Failed to add request to history", e);
+        }
+    }
+
+    /**
+     * Read the history index on the worker thread, let the user pick entries on the EDT, then load
+     * only the picked entries and send them to Repeater.
+     */
+    private void pasteFromHistory(ProgressIndicator progress) {
+        progress.update("Reading history...");
+        List<RequestHistory.Summary> summaries = history.summaries();
+        if (summaries.isEmpty()) {
+            showError("No requests in history yet.");
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            JList<RequestHistory.Summary> list = new JList<>(summaries.toArray(new RequestHistory.Summary[0]));
+            list.setCellRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                              boolean selected, boolean focused) {
+                    RequestHistory.Summary summary = (RequestHistory.Summary) value;
+                    String text = format.format(new Date(summary.time)) + "  " + summary.method + " " + summary.url;
+                    return super.getListCellRendererComponent(list, text, index, selected, focused);
+                }
+            });
+            list.setSelectedIndex(0);
+            JScrollPane scroll = new JScrollPane(list);
+            scroll.setPreferredSize(new Dimension(800, 400));
+            int choice = JOptionPane.showConfirmDialog(api.userInterface().swingUtils().suiteFrame(), scroll,
+                    "Paste cURL: history (" + summaries.size() + " requests)", JOptionPane.OK_CANCEL_OPTION,
+                    JOptionPane.PLAIN_MESSAGE);
+            List<RequestHistory.Summary> picked = list.getSelectedValuesList();
+            if (choice == JOptionPane.OK_OPTION && !picked.isEmpty()) {
+                runInBackground(worker -> openFromHistory(picked));
+            }
+        });
+    }
+
+    private void openFromHistory(List<RequestHistory.Summary> picked) {
+        int missing = 0;
+        int withoutBody = 0;
+        for (RequestHistory.Summary summary : picked) {
+            RequestHistory.Entry entry = history.open(summary);
+            if (entry == null) {
+                missing++;
+                continue;
+            }
+            if (entry.isBodyOmitted()) {
+                withoutBody++;
+            }
+            // Already in the history, so only send it
+            send(HttpRequest.httpRequest(HttpService.httpService(entry.host, entry.port, entry.secure),
+                    ByteArray.byteArray(entry.toBytes())));
+        }
+        if (missing > 0) {
+            showError(missing + " of the selected requests are no longer in the history.");
+        }
+        if (withoutBody > 0) {
+            showError(withoutBody + " of the selected requests were opened without their body, which was too large"
+                    + " to keep in the history (-Dpastecurl.historyMaxBody).");
+        }
+    }
+
+    /**
+     * Run clipboard work on the worker thread so the Burp UI stays responsive.
+     */
+    private void runInBackground(Consumer<ProgressIndicator> work) {
+        ProgressIndicator progress = new ProgressIndicator(api.userInterface().swingUtils().suiteFrame(), "Paste cURL");
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                work.accept(progress);
+            } catch (RuntimeException e) {
+                Log.error("Failed to paste cURL command", e);
+                showError("Failed to paste cURL command: " + e.getMessage());
+            } catch (OutOfMemoryError e) {
+                Log.error("Out of memory while pasting cURL command", e);
+                showError("Not enough memory to paste this cURL command.\n\n"
+                        + "Give Burp more memory or lower the clipboard limit (pastecurl.maxClipboardChars).");
+            } finally {
+                progress.close();
+            }
+        }, null);
+        // Set before the work starts, so the work can replace it with a gentler cancel
+        progress.setCancelAction(() -> task.cancel(true));
+        executor.execute(task);
+        progress.start();
+    }
+
+    private void pasteFromClipboard(ProgressIndicator progress) {
+        progress.update("Reading clipboard...");
+        try (Reader reader = openClipboardReader()) {
+            ClipboardSniffer sniffer = reader == null ? null : new ClipboardSniffer(reader);
+            if (sniffer == null || sniffer.isBlank()) {
                 showError("Clipboard is empty or does not contain text.");
                 return;
             }
+            if (!sniffer.looksLikeCurl()) {
+                showError(NO_CURL_MESSAGE);
+                return;
+            }
+            Reader clipboard = sniffer.rest();
 
-            api.logging().logToOutput("Paste cURL: parsing clipboard content (" + curlRequest.length() + " chars)");
+            // Small pastes are read whole so they can be cached; anything larger is parsed as a stream
+            char[] prefix = new char[READ_CHUNK_CHARS];
+            int length = 0;
+            boolean whole = false;
+            while (length < STREAM_THRESHOLD_CHARS) {
+                if (length == prefix.length) {
+                    prefix = Arrays.copyOf(prefix, Math.min(prefix.length * 2, STREAM_THRESHOLD_CHARS));
+                }
+                int read = clipboard.read(prefix, length, prefix.length - length);
+                if (read == -1) {
+                    whole = true;
+                    break;
+                }
+                length += read;
+            }
+            if (isCancelled(progress)) {
+                return;
+            }
 
-            HttpRequest rawRequest = parseCurlRequest(curlRequest);
+            HttpRequest rawRequest;
+            if (whole) {
+                String curlRequest = new String(prefix, 0, length);
+                if (curlRequest.isBlank()) {
+                    showError("Clipboard is empty or does not contain text.");
+                    return;
+                }
+                Log.info(() -> "parsing clipboard content (" + curlRequest.length() + " chars)");
+                progress.update("Parsing cURL command...");
+                rawRequest = parseCurlRequest(curlRequest);
+            } else {
+                // Hash the rest first, so a repeat paste of the same large command is a cache hit
+                progress.update("Reading large cURL command...");
+                ParseCache.Key key = hashRest(prefix, length, clipboard);
+                if (isCancelled(progress)) {
+                    return;
+                }
+                rawRequest = parseCache.get(key);
+                if (rawRequest == null) {
+                    Log.info(() -> "parsing large clipboard content as a stream");
+                    progress.update("Parsing large cURL command...");
+                    rawRequest = parseLargeCurlRequest();
+                }
+            }
+            if (isCancelled(progress)) {
+                return;
+            }
 
-            if (rawRequest != null) {
-                api.repeater().sendToRepeater(rawRequest);
-                api.logging().logToOutput("Paste cURL: sent request to Repeater");
+            if (rawRequest == null && sniffer.exceededLimit()) {
+                showError(ClipboardSniffer.limitMessage() + ".");
+            } else if (rawRequest != null) {
+                progress.update("Sending to Repeater...");
+                sendToRepeater(rawRequest);
+                Log.info(() -> "sent request to Repeater");
             } else {
-                showError("Failed to parse cURL command from clipboard.\n\n"
-                        + "Ensure the clipboard contains a valid curl command with an http(s) URL.");
+                showError("Failed to parse cURL command from clipboard.\n\n" + NO_CURL_MESSAGE);
+            }
+        } catch (IOException | UnsupportedFlavorException e) {
+            Log.error("Failed to read clipboard", e);
+            showError("Failed to read clipboard: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Split the clipboard into separate curl commands, parse them in parallel and send them to
+     * Repeater in their original order, one batch at a time.
+     */
+    private void pasteAllFromClipboard(ProgressIndicator progress) {
+        List<String> commands = readClipboardCommands(progress);
+        if (commands == null) {
+            return;
+        }
+
+        RequestDeduplicator deduplicator = RequestDeduplicator.fromSystemProperties();
+        int sent = 0;
+        int failed = 0;
+        for (int batchStart = 0; batchStart < commands.size(); batchStart += REPEATER_BATCH_SIZE) {
+            if (isCancelled(progress)) {
+                break;
+            }
+            progress.update("Parsing and sending " + commands.size() + " commands...", batchStart, commands.size());
+
+            List<HttpRequest> requests;
+            try {
+                requests = parseAll(commands.subList(batchStart, Math.min(batchStart + REPEATER_BATCH_SIZE, commands.size())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            for (HttpRequest request : requests) {
+                if (request == null) {
+                    failed++;
+                } else if (isNew(deduplicator, request)) {
+                    sendToRepeater(request);
+                    sent++;
+                }
+            }
+        }
+
+        int sentCount = sent;
+        int failedCount = failed;
+        Log.info(() -> "sent " + sentCount + " requests to Repeater, " + failedCount + " failed to parse"
+                + describeDuplicates(deduplicator));
+        if (failed > 0) {
+            showError(failed + " of " + commands.size() + " cURL commands could not be parsed.\n\n"
+                    + "See the extension output for details.");
+        }
+    }
+
+    /**
+     * The curl commands in the clipboard, or null after telling the user why there are none.
+     */
+    private List<String> readClipboardCommands(ProgressIndicator progress) {
+        progress.update("Reading clipboard...");
+        String clipboard;
+        try (Reader reader = openClipboardReader()) {
+            ClipboardSniffer sniffer = reader == null ? null : new ClipboardSniffer(reader);
+            if (sniffer == null || sniffer.isBlank()) {
+                showError("Clipboard is empty or does not contain text.");
+                return null;
+            }
+            if (!sniffer.looksLikeCurl()) {
+                showError(NO_CURL_MESSAGE);
+                return null;
+            }
+            clipboard = sniffer.readAll();
+        } catch (IOException | UnsupportedFlavorException e) {
+            Log.error("Failed to read clipboard", e);
+            showError("Failed to read clipboard: " + e.getMessage());
+            return null;
+        }
+
+        List<String> commands = CurlCommandSplitter.split(clipboard);
+        if (commands.isEmpty()) {
+            showError("No cURL commands found in clipboard.");
+            return null;
+        }
+        Log.info(() -> "found " + commands.size() + " curl commands in clipboard");
+        return commands;
+    }
+
+    /**
+     * Parse commands in parallel on the parse pool; commands that fail give null at their position.
+     */
+    private List<HttpRequest> parseAll(List<String> commands) throws InterruptedException {
+        try {
+            return parsePool.submit(() -> commands.parallelStream()
+                    .map(this::parseCurlRequest)
+                    .collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Ask for replay settings on the EDT, then send every command in the clipboard through Burp and
+     * show the responses in a results window.
+     */
+    private void replayFromClipboard() {
+        Frame suiteFrame = api.userInterface().swingUtils().suiteFrame();
+        JSpinner concurrency = new JSpinner(new SpinnerNumberModel(8, 1, 64, 1));
+        JSpinner perHost = new JSpinner(new SpinnerNumberModel(4, 1, 64, 1));
+        JSpinner pacing = new JSpinner(new SpinnerNumberModel(0, 0, 60_000, 50));
+        JPanel settings = new JPanel(new GridLayout(0, 2, 8, 4));
+        settings.add(new JLabel("Concurrent requests:"));
+        settings.add(concurrency);
+        settings.add(new JLabel("Concurrent requests per host:"));
+        settings.add(perHost);
+        settings.add(new JLabel("Delay between requests to a host (ms):"));
+        settings.add(pacing);
+        int choice = JOptionPane.showConfirmDialog(suiteFrame, settings, "Replay cURL commands",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        ReplayEngine engine = new ReplayEngine((Integer) concurrency.getValue(), (Integer) perHost.getValue(),
+                (Integer) pacing.getValue());
+
+        runInBackground(progress -> replayFromClipboard(engine, progress));
+    }
+
+    private void replayFromClipboard(ReplayEngine engine, ProgressIndicator progress) {
+        List<String> commands = readClipboardCommands(progress);
+        if (commands == null || readsLocalFiles(commands, "replayed")) {
+            return;
+        }
+        progress.update("Parsing " + commands.size() + " commands...");
+        List<HttpRequest> requests = new ArrayList<>(commands.size());
+        try {
+            for (HttpRequest request : parseAll(commands)) {
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.info(() -> "replay cancelled");
+            return;
+        }
+        int failed = commands.size() - requests.size();
+        if (requests.isEmpty()) {
+            showError("None of the " + commands.size() + " cURL commands could be parsed.");
+            return;
+        }
+
+        List<String> methods = new ArrayList<>(requests.size());
+        List<String> urls = new ArrayList<>(requests.size());
+        for (HttpRequest request : requests) {
+            methods.add(request.method());
+            urls.add(request.url());
+        }
+        // The window is built on the EDT; results reach it through its thread-safe addResult
+        ReplayPanel[] panel = new ReplayPanel[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                panel[0] = new ReplayPanel(methods, urls);
+                JFrame frame = new JFrame("Paste cURL: replay of " + requests.size() + " requests");
+                frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+                frame.setContentPane(panel[0]);
+                frame.setSize(1000, 600);
+                frame.setLocationRelativeTo(api.userInterface().swingUtils().suiteFrame());
+                frame.setVisible(true);
+            });
+        } catch (InterruptedException e) {
+            Log.info(() -> "replay cancelled");
+            return;
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot open the replay window", e.getCause());
+        }
+        ReplayPanel results = panel[0];
+
+        // From here Cancel stops starting requests; those in flight finish and still show their results
+        progress.setCancelAction(engine::cancel);
+        AtomicInteger done = new AtomicInteger();
+        try {
+            engine.run(requests, request -> request.httpService().host() + ":" + request.httpService().port(),
+                    request -> {
+                        HttpRequestResponse response = api.http().sendRequest(request);
+                        if (!response.hasResponse()) {
+                            throw new IOException("No response");
+                        }
+                        return new ReplayEngine.Outcome(response.response().statusCode(),
+                                response.response().toByteArray().length());
+                    },
+                    result -> {
+                        results.addResult(result);
+                        progress.update("Replaying " + requests.size() + " requests...", done.incrementAndGet(), requests.size());
+                    });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            results.finish();
+        }
+        Log.info(() -> "replayed " + done.get() + " of " + requests.size() + " requests");
+        if (failed > 0) {
+            showError(failed + " of " + commands.size() + " cURL commands could not be parsed and were not replayed.");
+        }
+    }
+
+    /**
+     * Whether any of the commands reads local files. Replay and load tests send requests the user
+     * never sees, so a pasted {@code --data-binary @~/.aws/credentials} would go straight to the
+     * command's host; such commands are refused with an explanation instead.
+     */
+    private boolean readsLocalFiles(List<String> commands, String action) {
+        int reading = 0;
+        for (String command : commands) {
+            if (CurlParser.referencesFiles(command)) {
+                reading++;
             }
+        }
+        if (reading == 0) {
+            return false;
+        }
+        Log.warn(() -> "refusing to send curl commands that read local files");
+        showError((commands.size() == 1 ? "The cURL command" : reading + " of the " + commands.size() + " cURL commands")
+                + " read local files (@file data, -F file parts, -T uploads or -b cookie files), so nothing was "
+                + action + ".\n\nPaste the command into Repeater instead to review the request before sending it.");
+        return true;
+    }
+
+    /**
+     * Ask for load settings on the EDT, then send the clipboard command repeatedly through Burp and
+     * show the latency report. The command's -m/--max-time applies per request.
+     */
+    private void loadTestFromClipboard() {
+        Frame suiteFrame = api.userInterface().swingUtils().suiteFrame();
+        JSpinner requests = new JSpinner(new SpinnerNumberModel(100, 1, 1_000_000, 10));
+        JSpinner concurrency = new JSpinner(new SpinnerNumberModel(10, 1, 256, 1));
+        JSpinner rate = new JSpinner(new SpinnerNumberModel(0, 0, 100_000, 10));
+        JPanel settings = new JPanel(new GridLayout(0, 2, 8, 4));
+        settings.add(new JLabel("Requests:"));
+        settings.add(requests);
+        settings.add(new JLabel("Concurrent requests:"));
+        settings.add(concurrency);
+        settings.add(new JLabel("Requests per second (0 = unlimited):"));
+        settings.add(rate);
+        int choice = JOptionPane.showConfirmDialog(suiteFrame, settings, "Load test cURL command",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        int total = (Integer) requests.getValue();
+        int threads = (Integer) concurrency.getValue();
+        int perSecond = (Integer) rate.getValue();
+
+        runInBackground(progress -> loadTestFromClipboard(total, threads, perSecond, progress));
+    }
+
+    private void loadTestFromClipboard(int total, int threads, int perSecond, ProgressIndicator progress) {
+        List<String> commands = readClipboardCommands(progress);
+        if (commands == null) {
+            return;
+        }
+        if (commands.size() > 1) {
+            Log.info(() -> "load testing the first of " + commands.size() + " curl commands");
+        }
+        if (readsLocalFiles(commands.subList(0, 1), "load tested")) {
+            return;
+        }
+        CurlParser.CurlRequest curlRequest = CurlParser.parseCurlCommand(commands.get(0), api);
+        if (curlRequest == null) {
+            showError("Failed to parse cURL command from clipboard.\n\n" + NO_CURL_MESSAGE);
+            return;
+        }
+        HttpRequest request = buildHttpRequest(curlRequest);
+        LoadProbe probe = new LoadProbe(total, threads, perSecond, curlRequest.getMaxTime(), curlRequest.getConnectTimeout());
+
+        String title = "Sending " + request.method() + " " + request.url() + "...";
+        progress.update(title, 0, total);
+        LoadProbe.Report report;
+        try {
+            report = probe.run(() -> {
+                HttpRequestResponse response = api.http().sendRequest(request);
+                if (!response.hasResponse()) {
+                    throw new IOException("No response");
+                }
+                return response.response().statusCode();
+            }, done -> progress.update(title, done, total));
+        } catch (InterruptedException e) {
+            Log.info(() -> "load test cancelled");
+            return;
+        }
+        String text = request.method() + " " + request.url() + System.lineSeparator() + report.describe();
+        Log.info(() -> "load test finished: " + report.sent.sum() + " requests, " + report.errorCount() + " errors");
+        SwingUtilities.invokeLater(() -> {
+            JTextArea area = new JTextArea(text);
+            area.setEditable(false);
+            area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, area.getFont().getSize()));
+            JOptionPane.showMessageDialog(api.userInterface().swingUtils().suiteFrame(), new JScrollPane(area),
+                    "Paste cURL: load test", JOptionPane.PLAIN_MESSAGE);
         });
+    }
 
-        menuItemList.add(pasteItem);
-        return menuItemList;
+    /**
+     * Ask for a HAR file and a destination on the EDT, then stream the import on the worker thread.
+     */
+    private void importHarFile() {
+        Frame suiteFrame = api.userInterface().swingUtils().suiteFrame();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import HAR file");
+        chooser.setFileFilter(new FileNameExtensionFilter("HTTP Archive (*.har)", "har"));
+        if (chooser.showOpenDialog(suiteFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+
+        int choice = chooseDestination(suiteFrame);
+        if (choice < 0) {
+            return;
+        }
+        boolean toSiteMap = choice == 1;
+
+        runInBackground(progress -> importHarFile(file, toSiteMap, progress));
+    }
+
+    /**
+     * Ask where imported requests go: 0 for Repeater, 1 for the site map, -1 if the dialog was closed.
+     */
+    private static int chooseDestination(Frame suiteFrame) {
+        String[] destinations = {"Repeater", "Site map"};
+        return JOptionPane.showOptionDialog(suiteFrame, "Send imported requests to:", "Paste cURL",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, destinations, destinations[0]);
+    }
+
+    private void importHarFile(File file, boolean toSiteMap, ProgressIndicator progress) {
+        progress.update("Importing " + file.getName() + "...");
+        HarReader harReader = new HarReader();
+        RequestDeduplicator deduplicator = RequestDeduplicator.fromSystemProperties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            harReader.read(reader, curlRequest -> {
+                if (deduplicator != null && !deduplicator.add(curlRequest)) {
+                    return;
+                }
+                HttpRequest request = buildHttpRequest(curlRequest);
+                if (toSiteMap) {
+                    api.siteMap().add(HttpRequestResponse.httpRequestResponse(request, null));
+                    remember(request);
+                } else {
+                    sendToRepeater(request);
+                }
+                int imported = harReader.getImported();
+                if (imported % 25 == 0) {
+                    progress.update("Imported " + imported + " requests from " + file.getName() + "...");
+                }
+            });
+        } catch (InterruptedIOException e) {
+            Log.info(() -> "HAR import cancelled");
+        } catch (IOException e) {
+            Log.error("Failed to import HAR file " + file.getName(), e);
+            showError("Failed to import HAR file " + file.getName() + ":\n\n" + e.getMessage());
+        }
+
+        Log.info(() -> "imported " + harReader.getImported() + " requests from "
+                + file.getName() + ", skipped " + harReader.getSkipped() + describeDuplicates(deduplicator));
+    }
+
+    /**
+     * Ask for script files or directories and a destination on the EDT, then import every curl
+     * command found in them on the worker thread.
+     */
+    private void importScripts() {
+        Frame suiteFrame = api.userInterface().swingUtils().suiteFrame();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import cURL scripts");
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setMultiSelectionEnabled(true);
+        if (chooser.showOpenDialog(suiteFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<Path> roots = new ArrayList<>();
+        for (File file : chooser.getSelectedFiles()) {
+            roots.add(file.toPath());
+        }
+
+        int choice = chooseDestination(suiteFrame);
+        if (choice < 0) {
+            return;
+        }
+        boolean toSiteMap = choice == 1;
+
+        runInBackground(progress -> importScripts(roots, toSiteMap, progress));
+    }
+
+    private void importScripts(List<Path> roots, boolean toSiteMap, ProgressIndicator progress) {
+        progress.update("Finding scripts...");
+        List<Path> scripts;
+        try {
+            scripts = ScriptImporter.findScripts(roots);
+        } catch (IOException e) {
+            Log.error("Failed to list curl scripts", e);
+            showError("Failed to list cURL scripts:\n\n" + e.getMessage());
+            return;
+        }
+        if (scripts.isEmpty()) {
+            showError("No cURL scripts found.");
+            return;
+        }
+
+        ScriptImporter<HttpRequest> importer = new ScriptImporter<>(parsePool, this::buildHttpRequest);
+        RequestDeduplicator deduplicator = RequestDeduplicator.fromSystemProperties();
+        try {
+            importer.importScripts(scripts, request -> {
+                if (!isNew(deduplicator, request)) {
+                    return;
+                }
+                if (toSiteMap) {
+                    api.siteMap().add(HttpRequestResponse.httpRequestResponse(request, null));
+                    remember(request);
+                } else {
+                    sendToRepeater(request);
+                }
+            }, () -> progress.update("Imported " + importer.getImported() + " requests from "
+                    + importer.getFiles() + " of " + scripts.size() + " scripts...", importer.getFiles(), scripts.size()));
+        } catch (InterruptedIOException e) {
+            Log.info(() -> "script import cancelled");
+        }
+
+        Log.info(() -> "imported " + importer.getImported() + " of " + importer.getCommands()
+                + " curl commands from " + importer.getFiles() + " scripts, " + importer.getFailed() + " failed"
+                + describeDuplicates(deduplicator));
+        if (importer.getFailed() > 0) {
+            showError(importer.getFailed() + " of " + importer.getCommands() + " cURL commands in "
+                    + scripts.size() + " scripts could not be imported:\n\n" + importer.describeFailures());
+        }
+    }
+
+    private static List<HttpRequest> requestsOf(List<HttpRequestResponse> selected) {
+        List<HttpRequest> requests = new ArrayList<>(selected.size());
+        for (HttpRequestResponse item : selected) {
+            if (item.request() != null) {
+                requests.add(item.request());
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Put the selected requests on the clipboard as curl commands. The system clipboard only takes
+     * whole strings, so the commands are streamed into one buffer; use the file export for histories.
+     */
+    private void copyAsCurl(List<HttpRequestResponse> selected, ProgressIndicator progress) {
+        List<HttpRequest> requests = requestsOf(selected);
+        StringWriter text = new StringWriter();
+        if (!exportAsCurl(requests, new CurlExporter(text), progress)) {
+            return;
+        }
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text.toString()), null);
+        Log.info(() -> "copied " + requests.size() + " requests as curl commands");
+    }
+
+    /**
+     * Ask for a script file on the EDT, then write the requests from {@code source} to it on the
+     * worker thread, one curl command at a time.
+     */
+    private void exportAsCurl(Supplier<List<HttpRequest>> source) {
+        Frame suiteFrame = api.userInterface().swingUtils().suiteFrame();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export as cURL script");
+        chooser.setSelectedFile(new File("requests.sh"));
+        if (chooser.showSaveDialog(suiteFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        runInBackground(progress -> {
+            progress.update("Collecting requests...");
+            List<HttpRequest> requests = source.get();
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                CurlExporter exporter = new CurlExporter(out);
+                exporter.comment("#!/usr/bin/env bash");
+                if (exportAsCurl(requests, exporter, progress)) {
+                    Log.info(() -> "exported " + exporter.getCount() + " requests as curl commands to " + file);
+                }
+            } catch (IOException e) {
+                Log.error("Failed to export curl commands", e);
+                showError("Failed to export cURL commands:\n\n" + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Write every request and flush; false if cancelled or a request could not be written.
+     */
+    private boolean exportAsCurl(List<HttpRequest> requests, CurlExporter exporter, ProgressIndicator progress) {
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                if (isCancelled(progress)) {
+                    return false;
+                }
+                HttpRequest request = requests.get(i);
+                exporter.write(request.method(), request.url(), request.headers(), request.body().getBytes());
+                if ((i & 0xff) == 0) {
+                    progress.update("Exporting " + requests.size() + " requests...", i, requests.size());
+                }
+            }
+            exporter.flush();
+            return true;
+        } catch (IOException e) {
+            Log.error("Failed to export curl commands", e);
+            showError("Failed to export cURL commands:\n\n" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Whether the request has not been seen before in this batch; always true without a deduplicator.
+     */
+    private static boolean isNew(RequestDeduplicator deduplicator, HttpRequest request) {
+        if (deduplicator == null) {
+            return true;
+        }
+        HttpService service = request.httpService();
+        String path = request.path();
+        int query = path.indexOf('?');
+        return deduplicator.add(deduplicator.fingerprint(request.method(), service.secure() ? "https" : "http",
+                service.host(), service.port(), query < 0 ? path : path.substring(0, query),
+                query < 0 ? null : path.substring(query + 1), request.headers(), request.body().getBytes()));
+    }
+
+    private static String describeDuplicates(RequestDeduplicator deduplicator) {
+        return deduplicator == null || deduplicator.getDuplicates() == 0 ? ""
+                : ", skipped " + deduplicator.getDuplicates() + " duplicates";
+    }
+
+    private boolean isCancelled(ProgressIndicator progress) {
+        if (progress.isCancelled() || Thread.currentThread().isInterrupted()) {
+            Log.info(() -> "cancelled");
+            return true;
+        }
+        return false;
     }
 
     private void showError(String message) {
-        api.logging().logToError(message);
+        Log.error(message);
         SwingUtilities.invokeLater(() ->
                 JOptionPane.showMessageDialog(
                         null,
@@ -69,54 +1010,138 @@ public class MenuItemsProvider implements ContextMenuItemsProvider {
                         JOptionPane.ERROR_MESSAGE));
     }
 
+    /**
+     * Parse and build a request, reusing the result of an earlier paste of the same text. Requests
+     * that read files are not cached since the files may have changed.
+     */
     private HttpRequest parseCurlRequest(String curlCommand) {
+        ParseCache.Key key = ParseCache.Key.of(curlCommand);
+        HttpRequest cached = parseCache.get(key);
+        if (cached != null) {
+            Log.debug(() -> "reusing cached request (" + parseCache.hits() + " hits, "
+                    + parseCache.misses() + " misses)");
+            return cached;
+        }
+
         CurlParser.CurlRequest curlRequest = CurlParser.parseCurlCommand(curlCommand, api);
 
         if (curlRequest == null) {
-            api.logging().logToError("Failed to parse curl command");
+            Log.warn(() -> "Failed to parse curl command");
             return null;
         }
 
-        HttpService service = HttpService.httpService(curlRequest.getBaseUrl());
+        HttpRequest request = buildHttpRequest(curlRequest);
+        if (!curlRequest.readsFiles()) {
+            parseCache.put(key, request, estimateSize(curlRequest));
+        }
+        return request;
+    }
 
-        HttpRequest output = HttpRequest.httpRequestFromUrl(curlRequest.getBaseUrl())
-                .withMethod(curlRequest.getMethod())
-                .withBody(curlRequest.getBody());
+    /**
+     * The cache key of the clipboard text: the part already read, then the rest of {@code clipboard}
+     * read chunk by chunk without keeping it.
+     */
+    private static ParseCache.Key hashRest(char[] prefix, int length, Reader clipboard) throws IOException {
+        ParseCache.Key.Builder key = new ParseCache.Key.Builder().append(prefix, 0, length);
+        char[] chunk = new char[READ_CHUNK_CHARS];
+        int read;
+        while ((read = clipboard.read(chunk, 0, chunk.length)) != -1) {
+            key.append(chunk, 0, read);
+        }
+        return key.build();
+    }
 
+    /**
+     * Parse and build a request streamed from a fresh read of the clipboard, the first one having
+     * been used up to compute its key. The request is cached under the key of the text actually
+     * parsed, in case the clipboard changed in between.
+     */
+    private HttpRequest parseLargeCurlRequest() throws IOException, UnsupportedFlavorException {
+        CurlParser.CurlRequest curlRequest;
+        HashingReader curlCommand;
+        try (Reader reader = openClipboardReader()) {
+            if (reader == null) {
+                return null;
+            }
+            curlCommand = new HashingReader(new ClipboardSniffer(reader).rest());
+            curlRequest = CurlParser.parseCurlCommand(curlCommand, api);
+        }
+        if (curlRequest == null) {
+            Log.warn(() -> "Failed to parse curl command");
+            return null;
+        }
+        HttpRequest request = buildHttpRequest(curlRequest);
+        if (curlCommand.ended && !curlRequest.readsFiles()) {
+            parseCache.put(curlCommand.key.build(), request, estimateSize(curlRequest));
+        }
+        return request;
+    }
+
+    private static long estimateSize(CurlParser.CurlRequest curlRequest) {
+        long size = curlRequest.getBodyLength() + curlRequest.getBaseUrl().length() + 32;
         for (HttpHeader header : curlRequest.getHeaders()) {
-            output = withoutHeadersNamedIgnoreCase(output, header.name());
-            output = output.withHeader(header.name(), header.value());
+            size += header.name().length() + header.value().length() + 4;
         }
+        return size;
+    }
 
-        output = output.withService(service);
+    public ParseCache<HttpRequest> getParseCache() {
+        return parseCache;
+    }
 
+    private HttpRequest buildHttpRequest(CurlParser.CurlRequest curlRequest) {
+        long start = Metrics.start();
+        HttpService service = HttpService.httpService(curlRequest.getHost(), RequestAssembler.port(curlRequest),
+                RequestAssembler.isSecure(curlRequest));
+        HttpRequest output = HttpRequest.httpRequest(service, ByteArray.byteArray(RequestAssembler.toBytes(curlRequest)));
+        Metrics.Stage.BUILD_REQUEST.record(start);
         return output;
     }
 
-    private static HttpRequest withoutHeadersNamedIgnoreCase(HttpRequest request, String headerName) {
-        List<HttpHeader> toRemove = new ArrayList<>();
-        for (HttpHeader h : request.headers()) {
-            if (h.name().equalsIgnoreCase(headerName)) {
-                toRemove.add(h);
-            }
-        }
-        for (HttpHeader h : toRemove) {
-            request = request.withRemovedHeader(h);
+    /**
+     * A reader over the clipboard text in its best plain text flavor, or null if the clipboard holds
+     * no plain text. The text is not materialized as one string.
+     */
+    public Reader openClipboardReader() throws IOException, UnsupportedFlavorException {
+        Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+        return openClipboardReader(clipboard.getContents(null));
+    }
+
+    private static Reader openClipboardReader(Transferable transferable) throws IOException, UnsupportedFlavorException {
+        if (transferable == null) {
+            return null;
         }
-        return request;
+        DataFlavor flavor = ClipboardSniffer.plainTextFlavor(transferable.getTransferDataFlavors());
+        return flavor == null ? null : flavor.getReaderForText(transferable);
     }
 
-    public String getClipboardContent() {
-        Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-        Transferable transferable = clipboard.getContents(null);
-        if (transferable != null && transferable.isDataFlavorSupported(DataFlavor.stringFlavor)) {
-            try {
-                return (String) transferable.getTransferData(DataFlavor.stringFlavor);
-            } catch (UnsupportedFlavorException | IOException e) {
-                api.logging().logToError(e);
+    /**
+     * Passes a reader through while computing the cache key of everything read from it.
+     */
+    private static final class HashingReader extends Reader {
+        private final Reader reader;
+        final ParseCache.Key.Builder key = new ParseCache.Key.Builder();
+        boolean ended;
+
+        HashingReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(char[] dest, int offset, int count) throws IOException {
+            int read = reader.read(dest, offset, count);
+            if (read == -1) {
+                ended = true;
+            } else {
+                key.append(dest, offset, read);
             }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
         }
-        return "";
     }
 
 }
@@ -0,0 +1,79 @@
+package burp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide timing, size and failure counters for the paste pipeline.
+ * <p>
+ * Stages are timed with {@link #start()} / {@link Stage#record(long)}; everything is lock-free so the
+ * instrumentation can stay enabled in production. Shown in the Paste cURL suite tab.
+ */
+public final class Metrics {
+
+    /**
+     * Size in characters of every command handed to the parser.
+     */
+    public static final Histogram INPUT_SIZE = new Histogram();
+
+    public enum Stage {
+        LEX("Parse: lexing"),
+        URL("Parse: URL extraction"),
+        HEADERS("Parse: header extraction"),
+        BODY("Parse: body assembly"),
+        PARSE("Parse: total"),
+        BUILD_REQUEST("Request: building"),
+        SEND_TO_REPEATER("Send to Repeater");
+
+        private final String label;
+        private final Histogram latency = new Histogram();
+        private final LongAdder failures = new LongAdder();
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        /**
+         * Latencies in nanoseconds.
+         */
+        public Histogram latency() {
+            return latency;
+        }
+
+        public long failures() {
+            return failures.sum();
+        }
+
+        /**
+         * Record the time since {@code startNanos} (from {@link Metrics#start()}) and return the current
+         * time, so consecutive stages can be chained.
+         */
+        public long record(long startNanos) {
+            long now = System.nanoTime();
+            latency.record(now - startNanos);
+            return now;
+        }
+
+        public void failed() {
+            failures.increment();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public static void reset() {
+        INPUT_SIZE.reset();
+        for (Stage stage : Stage.values()) {
+            stage.latency.reset();
+            stage.failures.reset();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package burp;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+
+/**
+ * Suite tab showing where time goes in the paste pipeline: per-stage latency percentiles and
+ * failures, the distribution of pasted command sizes and parse cache effectiveness. Also controls the
+ * log level and shows the recent log messages.
+ */
+public class MetricsPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private static final int REFRESH_MS = 1000;
+
+    private static final long KB = 1024;
+
+    // Input sizes are counted in characters, as the lexer reads them
+    private static final long K = 1024;
+    private static final long M = 1024 * K;
+    private static final long[] SIZE_BOUNDS = {0, K, 10 * K, 100 * K, M, 10 * M, Long.MAX_VALUE};
+    private static final String[] SIZE_LABELS = {"< 1K", "1K - 10K", "10K - 100K", "100K - 1M", "1M - 10M", ">= 10M"};
+
+    private final ParseCache<?> parseCache;
+    private final StageTableModel stageModel = new StageTableModel();
+    private final SizeTableModel sizeModel = new SizeTableModel();
+    private final JLabel cacheLabel = new JLabel();
+    private final Timer timer;
+
+    public MetricsPanel(ParseCache<?> parseCache) {
+        super(new BorderLayout(0, 8));
+        this.parseCache = parseCache;
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+        JTable stageTable = new JTable(stageModel);
+        JTable sizeTable = new JTable(sizeModel);
+        sizeTable.setPreferredScrollableViewportSize(new Dimension(400, sizeTable.getRowHeight() * SIZE_LABELS.length));
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            Metrics.reset();
+            refresh();
+        });
+
+        JComboBox<Log.Level> levelBox = new JComboBox<>(Log.Level.values());
+        levelBox.setSelectedItem(Log.getLevel());
+        levelBox.addActionListener(e -> Log.setLevel((Log.Level) levelBox.getSelectedItem()));
+
+        JButton logButton = new JButton("Recent log");
+        logButton.addActionListener(e -> showRecentLog());
+
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        actions.add(new JLabel("Log level:"));
+        actions.add(levelBox);
+        actions.add(logButton);
+        actions.add(resetButton);
+
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(cacheLabel, BorderLayout.CENTER);
+        top.add(actions, BorderLayout.EAST);
+
+        JPanel sizes = new JPanel(new BorderLayout());
+        sizes.add(new JLabel("Pasted command size"), BorderLayout.NORTH);
+        sizes.add(new JScrollPane(sizeTable), BorderLayout.CENTER);
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(stageTable), BorderLayout.CENTER);
+        add(sizes, BorderLayout.SOUTH);
+
+        timer = new Timer(REFRESH_MS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    /**
+     * Stop refreshing; called when the extension is unloaded.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    private void refresh() {
+        stageModel.fireTableDataChanged();
+        sizeModel.fireTableDataChanged();
+        if (parseCache != null) {
+            cacheLabel.setText("Parse cache: " + parseCache.hits() + " hits, " + parseCache.misses() + " misses, "
+                    + parseCache.size() + " entries, " + (parseCache.weight() / KB) + " KB");
+        }
+    }
+
+    private void showRecentLog() {
+        JTextArea text = new JTextArea(String.join("\n", Log.recent()), 25, 100);
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, text.getFont().getSize()));
+        JOptionPane.showMessageDialog(this, new JScrollPane(text), "Paste cURL: recent log", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+
+    private static final class StageTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Stage", "Count", "Failures", "p50 (ms)", "p95 (ms)", "p99 (ms)", "Max (ms)"};
+        private final Metrics.Stage[] stages = Metrics.Stage.values();
+
+        @Override
+        public int getRowCount() {
+            return stages.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Metrics.Stage stage = stages[row];
+            Histogram latency = stage.latency();
+            switch (column) {
+                case 0:
+                    return stage.label();
+                case 1:
+                    return latency.count();
+                case 2:
+                    return stage.failures();
+                case 3:
+                    return millis(latency.percentile(50));
+                case 4:
+                    return millis(latency.percentile(95));
+                case 5:
+                    return millis(latency.percentile(99));
+                default:
+                    return millis(latency.max());
+            }
+        }
+    }
+
+    private static final class SizeTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Size (chars)", "Commands"};
+
+        @Override
+        public int getRowCount() {
+            return SIZE_LABELS.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) {
+                return SIZE_LABELS[row];
+            }
+            return Metrics.INPUT_SIZE.countBetween(SIZE_BOUNDS[row], SIZE_BOUNDS[row + 1]);
+        }
+    }
+}
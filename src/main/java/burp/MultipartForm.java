@@ -0,0 +1,275 @@
+package burp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Builds a {@code multipart/form-data} body from curl {@code -F} / {@code --form} arguments.
+ * <p>
+ * Supports {@code name=value}, {@code name=@file} (a file upload part), {@code name=<file} (a field
+ * whose value is read from a file) and the {@code ;type=} and {@code ;filename=} parameters, plus
+ * {@code --form-string} values that are always literal. Part headers and the trailer are small byte
+ * segments; file contents stay file regions of the {@link RequestBody} until the request is written.
+ */
+final class MultipartForm {
+
+    private static final char[] BOUNDARY_CHARS =
+            "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private final String boundary;
+    private final RequestBody body = new RequestBody();
+
+    MultipartForm() {
+        this(randomBoundary());
+    }
+
+    MultipartForm(String boundary) {
+        this.boundary = boundary;
+    }
+
+    /**
+     * The boundary as used in the Content-Type header; parts are delimited by {@code --} plus this.
+     */
+    String boundary() {
+        return boundary;
+    }
+
+    String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * Add one {@code -F} argument, or a {@code --form-string} argument when {@code literal}.
+     *
+     * @throws IOException if a referenced file cannot be read or the argument has no name
+     */
+    void add(String argument, boolean literal) throws IOException {
+        add(argument, literal, null);
+    }
+
+    /**
+     * Add one {@code -F} argument, resolving relative file names against {@code baseDirectory}.
+     */
+    void add(String argument, boolean literal, Path baseDirectory) throws IOException {
+        int eq = argument.indexOf('=');
+        if (eq <= 0) {
+            throw new IOException("Illegal form argument, expected name=content: " + argument);
+        }
+        String name = argument.substring(0, eq);
+        String content = argument.substring(eq + 1);
+
+        if (literal) {
+            addPart(name, null, null, content, null);
+            return;
+        }
+
+        char kind = content.isEmpty() ? 0 : content.charAt(0);
+        boolean fromFile = isFileContent(content);
+        Parameters parameters = Parameters.parse(fromFile ? content.substring(1) : content);
+        if (!fromFile) {
+            addPart(name, parameters.filename, parameters.type, parameters.value, null);
+            return;
+        }
+
+        Path file = FileReferences.resolve(parameters.value, baseDirectory);
+        if (kind == '@') {
+            String filename = parameters.filename != null ? parameters.filename : file.getFileName().toString();
+            String type = parameters.type != null ? parameters.type : guessType(filename);
+            addPart(name, filename, type, null, file);
+        } else {
+            addPart(name, parameters.filename, parameters.type, null, file);
+        }
+    }
+
+    /**
+     * Whether a {@code -F} argument reads a file ({@code name=@file} or {@code name=<file}).
+     */
+    static boolean readsFile(String argument) {
+        int eq = argument.indexOf('=');
+        return eq > 0 && isFileContent(argument.substring(eq + 1));
+    }
+
+    private static boolean isFileContent(String content) {
+        char kind = content.isEmpty() ? 0 : content.charAt(0);
+        return (kind == '@' || kind == '<') && content.length() > 1 && !content.equals(kind + "-");
+    }
+
+    /**
+     * Close the form and return its body; nothing may be added afterwards.
+     */
+    RequestBody finish() {
+        body.append("--" + boundary + "--\r\n");
+        return body;
+    }
+
+    private void addPart(String name, String filename, String type, String value, Path file) throws IOException {
+        StringBuilder head = new StringBuilder(128);
+        head.append("--").append(boundary).append("\r\n");
+        head.append("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+        if (filename != null) {
+            head.append("; filename=\"").append(escape(filename)).append('"');
+        }
+        head.append("\r\n");
+        if (type != null) {
+            head.append("Content-Type: ").append(type).append("\r\n");
+        }
+        head.append("\r\n");
+        if (value != null) {
+            head.append(value);
+        }
+        body.append(head.toString());
+        if (file != null) {
+            body.appendFile(file);
+        }
+        body.append(new byte[]{'\r', '\n'});
+    }
+
+    /**
+     * Quotes and line breaks in names are escaped the way curl does it.
+     */
+    private static String escape(String text) {
+        if (text.indexOf('"') == -1 && text.indexOf('\r') == -1 && text.indexOf('\n') == -1) {
+            return text;
+        }
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    escaped.append("%22");
+                    break;
+                case '\r':
+                    escaped.append("%0D");
+                    break;
+                case '\n':
+                    escaped.append("%0A");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The content type curl picks for an uploaded file from its extension.
+     */
+    static String guessType(String filename) {
+        int dot = filename.lastIndexOf('.');
+        String extension = dot == -1 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        switch (extension) {
+            case "gif":
+                return "image/gif";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "png":
+                return "image/png";
+            case "svg":
+                return "image/svg+xml";
+            case "txt":
+                return "text/plain";
+            case "htm":
+            case "html":
+                return "text/html";
+            case "pdf":
+                return "application/pdf";
+            case "xml":
+                return "application/xml";
+            case "json":
+                return "application/json";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static String randomBoundary() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder boundary = new StringBuilder(46).append("------------------------");
+        for (int i = 0; i < 22; i++) {
+            boundary.append(BOUNDARY_CHARS[random.nextInt(BOUNDARY_CHARS.length)]);
+        }
+        return boundary.toString();
+    }
+
+    /**
+     * Content of a form argument split from its {@code ;type=} / {@code ;filename=} parameters. A value
+     * in double quotes may contain {@code ;} and uses backslash to escape {@code "} and {@code \}.
+     * Other {@code ;name=} parameters are skipped; a {@code ;} not followed by a parameter is content.
+     */
+    private static final class Parameters {
+        String value;
+        String type;
+        String filename;
+
+        static Parameters parse(String content) {
+            Parameters parameters = new Parameters();
+            int end;
+            if (content.startsWith("\"")) {
+                StringBuilder value = new StringBuilder(content.length());
+                int i = 1;
+                for (; i < content.length() && content.charAt(i) != '"'; i++) {
+                    char c = content.charAt(i);
+                    if (c == '\\' && i + 1 < content.length()) {
+                        c = content.charAt(++i);
+                    }
+                    value.append(c);
+                }
+                parameters.value = value.toString();
+                end = Math.min(i + 1, content.length());
+            } else {
+                end = nextParameter(content, 0);
+                parameters.value = content.substring(0, end);
+            }
+
+            while (end < content.length()) {
+                int next = nextParameter(content, end + 1);
+                String parameter = content.substring(end + 1, next).trim();
+                int eq = parameter.indexOf('=');
+                if (eq > 0) {
+                    String key = parameter.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+                    String value = unquote(parameter.substring(eq + 1).trim());
+                    if (key.equals("type")) {
+                        parameters.type = value;
+                    } else if (key.equals("filename")) {
+                        parameters.filename = value;
+                    }
+                }
+                end = next;
+            }
+            return parameters;
+        }
+
+        /**
+         * Index of the next {@code ;} that starts a {@code name=} parameter, or the end of the text.
+         */
+        private static int nextParameter(String content, int from) {
+            int semicolon = content.indexOf(';', from);
+            while (semicolon != -1) {
+                int i = semicolon + 1;
+                while (i < content.length() && content.charAt(i) == ' ') {
+                    i++;
+                }
+                int nameStart = i;
+                while (i < content.length() && (Character.isLetterOrDigit(content.charAt(i)) || content.charAt(i) == '-')) {
+                    i++;
+                }
+                if (i > nameStart && i < content.length() && content.charAt(i) == '=') {
+                    return semicolon;
+                }
+                semicolon = content.indexOf(';', semicolon + 1);
+            }
+            return content.length();
+        }
+
+        private static String unquote(String value) {
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                return value.substring(1, value.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+            }
+            return value;
+        }
+    }
+}
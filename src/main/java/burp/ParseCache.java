@@ -0,0 +1,175 @@
+package burp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least-recently-used cache of parse results keyed by a hash of the pasted text.
+ * <p>
+ * The cache is bounded by the total weight of its entries (the request body bytes) rather than by
+ * entry count, so a few huge pastes cannot pin hundreds of megabytes. Entries heavier than the whole
+ * budget are never stored.
+ *
+ * @param <V> the cached value, e.g. a built HttpRequest
+ */
+public class ParseCache<V> {
+
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ParseCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    public ParseCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public synchronized V get(Key key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(Key key, V value, long entryWeight) {
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, entryWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+
+        Iterator<Map.Entry<Key, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Hash of a pasted text: its length and two independent 64-bit hashes computed in one pass, so
+     * the text itself does not have to be kept as the key. A {@link Builder} computes the same key
+     * from text read in chunks.
+     */
+    public static final class Key {
+        private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private final long length;
+        private final long polynomial;
+        private final long fnv;
+
+        private Key(long length, long polynomial, long fnv) {
+            this.length = length;
+            this.polynomial = polynomial;
+            this.fnv = fnv;
+        }
+
+        public static Key of(CharSequence text) {
+            return new Builder().append(text).build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return length == other.length && polynomial == other.polynomial && fnv == other.fnv;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fnv) * 31 + Long.hashCode(length);
+        }
+
+        /**
+         * Computes a key incrementally, e.g. while a paste too large to hold as one string is streamed.
+         */
+        public static final class Builder {
+            private long length;
+            private long polynomial;
+            private long fnv = FNV_OFFSET;
+
+            public Builder append(CharSequence text) {
+                int count = text.length();
+                for (int i = 0; i < count; i++) {
+                    add(text.charAt(i));
+                }
+                length += count;
+                return this;
+            }
+
+            public Builder append(char[] chars, int offset, int count) {
+                for (int i = offset; i < offset + count; i++) {
+                    add(chars[i]);
+                }
+                length += count;
+                return this;
+            }
+
+            private void add(char c) {
+                polynomial = 31 * polynomial + c;
+                fnv = (fnv ^ c) * FNV_PRIME;
+            }
+
+            public Key build() {
+                return new Key(length, polynomial, fnv);
+            }
+        }
+    }
+}
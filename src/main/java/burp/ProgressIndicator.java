@@ -0,0 +1,172 @@
+package burp;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Non-modal progress window for work running off the event dispatch thread.
+ * <p>
+ * The window only appears if the work takes longer than {@link #SHOW_DELAY_MS}, so quick pastes
+ * do not flash a dialog. All methods may be called from any thread.
+ */
+public class ProgressIndicator {
+
+    private static final int SHOW_DELAY_MS = 300;
+
+    private final String title;
+    private final Frame owner;
+    private volatile boolean cancelled;
+    private volatile boolean closed;
+    private volatile Runnable cancelAction;
+
+    // Latest reported progress; the dialog shows whatever is current when the EDT gets to it
+    private volatile String status = "Working...";
+    private volatile int done;
+    private volatile int total = -1;
+
+    private JDialog dialog;
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
+    private Timer showTimer;
+
+    public ProgressIndicator(Frame owner, String title) {
+        this.owner = owner;
+        this.title = title;
+    }
+
+    /**
+     * Set the action run (on the EDT) when the user presses Cancel.
+     */
+    public void setCancelAction(Runnable cancelAction) {
+        this.cancelAction = cancelAction;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Mark the work as cancelled and run the cancel action, once.
+     */
+    public void cancel() {
+        if (cancelled || closed) {
+            return;
+        }
+        cancelled = true;
+        status = "Cancelling...";
+        Runnable action = cancelAction;
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    String status() {
+        return status;
+    }
+
+    int done() {
+        return done;
+    }
+
+    /**
+     * The total for a determinate bar, or -1 while the amount of work is unknown.
+     */
+    int total() {
+        return total;
+    }
+
+    public void start() {
+        SwingUtilities.invokeLater(() -> {
+            if (closed) {
+                return;
+            }
+            showTimer = new Timer(SHOW_DELAY_MS, e -> showDialog());
+            showTimer.setRepeats(false);
+            showTimer.start();
+        });
+    }
+
+    public void update(String status) {
+        if (closed || cancelled) {
+            return;
+        }
+        this.status = status;
+        SwingUtilities.invokeLater(this::showProgress);
+    }
+
+    /**
+     * Switch to a determinate bar showing {@code done} of {@code total}.
+     */
+    public void update(String status, int done, int total) {
+        if (closed || cancelled) {
+            return;
+        }
+        this.done = Math.max(0, Math.min(done, total));
+        this.total = Math.max(0, total);
+        this.status = status;
+        SwingUtilities.invokeLater(this::showProgress);
+    }
+
+    public void close() {
+        closed = true;
+        SwingUtilities.invokeLater(() -> {
+            if (showTimer != null) {
+                showTimer.stop();
+            }
+            if (dialog != null) {
+                dialog.dispose();
+                dialog = null;
+            }
+        });
+    }
+
+    private void showProgress() {
+        if (statusLabel == null) {
+            return;
+        }
+        statusLabel.setText(status);
+        int max = total;
+        if (max >= 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(max);
+            progressBar.setValue(done);
+        }
+    }
+
+    private void showDialog() {
+        if (closed) {
+            return;
+        }
+        dialog = new JDialog(owner, title, false);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+
+        statusLabel = new JLabel();
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        showProgress();
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelButton.setEnabled(false);
+            cancel();
+            showProgress();
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(8, 8));
+        panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        panel.add(statusLabel, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        buttons.add(cancelButton);
+        panel.add(buttons, BorderLayout.SOUTH);
+
+        dialog.setContentPane(panel);
+        dialog.setSize(360, 130);
+        dialog.setLocationRelativeTo(owner);
+        dialog.setVisible(true);
+    }
+}
@@ -0,0 +1,269 @@
+package burp;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Sends a batch of requests concurrently and reports status, size and latency for each one.
+ * <p>
+ * At most {@code concurrency} requests are in flight overall and at most {@code perHost} to any one
+ * host. Hosts take turns: the next request always comes from the host that was served least
+ * recently and is allowed to start, so one host with hundreds of requests does not hold up the
+ * others. With pacing, requests to the same host start at least that far apart.
+ */
+final class ReplayEngine {
+
+    private final int concurrency;
+    private final int perHost;
+    private final long pacingNanos;
+    private final LongSupplier clock;
+
+    private volatile Scheduler<?> running;
+    private volatile boolean cancelled;
+
+    ReplayEngine(int concurrency, int perHost, long pacingMillis) {
+        this(concurrency, perHost, pacingMillis, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond time source for pacing and latencies
+     */
+    ReplayEngine(int concurrency, int perHost, long pacingMillis, LongSupplier clock) {
+        if (concurrency < 1 || perHost < 1 || pacingMillis < 0) {
+            throw new IllegalArgumentException("Invalid replay settings: concurrency " + concurrency
+                    + ", per host " + perHost + ", pacing " + pacingMillis + " ms");
+        }
+        this.concurrency = concurrency;
+        this.perHost = perHost;
+        this.pacingNanos = TimeUnit.MILLISECONDS.toNanos(pacingMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Sends one request and describes the response.
+     */
+    interface Sender<T> {
+        Outcome send(T request) throws Exception;
+    }
+
+    static final class Outcome {
+        final int status;
+        final long size;
+
+        Outcome(int status, long size) {
+            this.status = status;
+            this.size = size;
+        }
+    }
+
+    /**
+     * What happened to the request at {@code index}: a status and response size, or an error.
+     */
+    static final class Result {
+        final int index;
+        final int status;
+        final long size;
+        final long startNanos;
+        final long latencyNanos;
+        final String error;
+
+        Result(int index, int status, long size, long startNanos, long latencyNanos, String error) {
+            this.index = index;
+            this.status = status;
+            this.size = size;
+            this.startNanos = startNanos;
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Send every request and pass each result to {@code results} as it completes, on the sending
+     * thread. Returns when all requests are done or after {@link #cancel()}, once the requests
+     * already in flight have finished.
+     *
+     * @throws InterruptedException if the calling thread is interrupted; requests not yet started are
+     *                              dropped
+     */
+    <T> void run(List<T> requests, Function<T, String> hostOf, Sender<T> sender, Consumer<Result> results)
+            throws InterruptedException {
+        Scheduler<T> scheduler = new Scheduler<>(requests, hostOf);
+        running = scheduler;
+        if (cancelled) {
+            scheduler.cancel();
+        }
+        int threads = Math.min(concurrency, Math.max(1, requests.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Paste cURL replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < threads; i++) {
+                pool.execute(() -> work(scheduler, sender, results));
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting; interruption cancels below
+            }
+        } catch (InterruptedException e) {
+            scheduler.cancel();
+            pool.shutdownNow();
+            throw e;
+        } finally {
+            running = null;
+        }
+    }
+
+    /**
+     * Stop starting new requests in the current run. Cancelling before {@link #run} starts, e.g.
+     * while the requests are still being parsed, means it sends nothing.
+     */
+    void cancel() {
+        cancelled = true;
+        Scheduler<?> scheduler = running;
+        if (scheduler != null) {
+            scheduler.cancel();
+        }
+    }
+
+    private <T> void work(Scheduler<T> scheduler, Sender<T> sender, Consumer<Result> results) {
+        try {
+            Job<T> job;
+            while ((job = scheduler.take()) != null) {
+                Result result;
+                try {
+                    Outcome outcome = sender.send(job.request);
+                    result = new Result(job.index, outcome.status, outcome.size, job.start, clock.getAsLong() - job.start, null);
+                } catch (Exception e) {
+                    String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                    result = new Result(job.index, 0, 0, job.start, clock.getAsLong() - job.start, error);
+                } finally {
+                    scheduler.done(job);
+                }
+                results.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Job<T> {
+        final int index;
+        final T request;
+        final Host<T> host;
+        // When the scheduler handed the job out
+        long start;
+
+        Job(int index, T request, Host<T> host) {
+            this.index = index;
+            this.request = request;
+            this.host = host;
+        }
+    }
+
+    private static final class Host<T> {
+        final ArrayDeque<Job<T>> pending = new ArrayDeque<>();
+        int inFlight;
+        long nextStart;
+
+        Host(long nextStart) {
+            this.nextStart = nextStart;
+        }
+    }
+
+    /**
+     * Hands out jobs round-robin over the hosts that still have pending requests.
+     */
+    private final class Scheduler<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final ArrayDeque<Host<T>> rotation = new ArrayDeque<>();
+        private int pending;
+        private boolean cancelled;
+
+        Scheduler(List<T> requests, Function<T, String> hostOf) {
+            long start = clock.getAsLong();
+            Map<String, Host<T>> hosts = new LinkedHashMap<>();
+            for (int i = 0; i < requests.size(); i++) {
+                T request = requests.get(i);
+                Host<T> host = hosts.computeIfAbsent(hostOf.apply(request), key -> new Host<>(start));
+                host.pending.add(new Job<>(i, request, host));
+            }
+            rotation.addAll(hosts.values());
+            pending = requests.size();
+        }
+
+        /**
+         * The next job to send, waiting for a host limit or pacing delay if needed; null when there
+         * is nothing left to start.
+         */
+        Job<T> take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (true) {
+                    if (cancelled || pending == 0) {
+                        return null;
+                    }
+                    long now = clock.getAsLong();
+                    long wait = Long.MAX_VALUE;
+                    for (int i = 0, hosts = rotation.size(); i < hosts; i++) {
+                        Host<T> host = rotation.pollFirst();
+                        if (host.inFlight < perHost && now - host.nextStart >= 0) {
+                            Job<T> job = host.pending.poll();
+                            job.start = now;
+                            host.inFlight++;
+                            host.nextStart = now + pacingNanos;
+                            pending--;
+                            if (!host.pending.isEmpty()) {
+                                rotation.addLast(host);
+                            }
+                            return job;
+                        }
+                        if (host.inFlight < perHost) {
+                            wait = Math.min(wait, host.nextStart - now);
+                        }
+                        rotation.addLast(host);
+                    }
+                    if (wait == Long.MAX_VALUE) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(wait);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void done(Job<T> job) {
+            lock.lock();
+            try {
+                job.host.inFlight--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package burp;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Results of replaying a batch of requests: one row per request with its status, response size and
+ * latency, filled in as responses arrive, and a summary line with latency percentiles.
+ */
+public class ReplayPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private final ResultsModel model;
+    private final JLabel summary = new JLabel();
+    private final Histogram latency = new Histogram();
+    private int done;
+    private int errors;
+    private boolean finished;
+
+    /**
+     * Must be called on the event dispatch thread.
+     *
+     * @param methods request methods, one per row
+     * @param urls    request URLs, in the same order
+     */
+    public ReplayPanel(List<String> methods, List<String> urls) {
+        super(new BorderLayout(0, 8));
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        model = new ResultsModel(methods, urls);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(2).setPreferredWidth(400);
+        table.getColumnModel().getColumn(6).setPreferredWidth(200);
+
+        add(summary, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        updateSummary();
+    }
+
+    /**
+     * Record a result; may be called from any thread.
+     */
+    public void addResult(ReplayEngine.Result result) {
+        SwingUtilities.invokeLater(() -> {
+            model.set(result);
+            done++;
+            if (result.error != null) {
+                errors++;
+            } else {
+                latency.record(result.latencyNanos);
+            }
+            updateSummary();
+        });
+    }
+
+    /**
+     * Mark the replay as over; may be called from any thread.
+     */
+    public void finish() {
+        SwingUtilities.invokeLater(() -> {
+            finished = true;
+            updateSummary();
+        });
+    }
+
+    private void updateSummary() {
+        StringBuilder text = new StringBuilder();
+        text.append(finished && done < model.getRowCount() ? "Stopped: " : finished ? "Done: " : "Running: ")
+                .append(done).append(" of ").append(model.getRowCount()).append(" requests, ")
+                .append(errors).append(" errors");
+        if (latency.count() > 0) {
+            text.append(", latency p50 ").append(millis(latency.percentile(50)))
+                    .append(" ms, p95 ").append(millis(latency.percentile(95)))
+                    .append(" ms, max ").append(millis(latency.max())).append(" ms");
+        }
+        summary.setText(text.toString());
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    private static final class ResultsModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"#", "Method", "URL", "Status", "Size", "Latency (ms)", "Error"};
+        private static final Class<?>[] TYPES = {Integer.class, String.class, String.class, Integer.class, Long.class, Double.class, String.class};
+
+        private final List<String> methods;
+        private final List<String> urls;
+        private final ReplayEngine.Result[] results;
+
+        ResultsModel(List<String> methods, List<String> urls) {
+            this.methods = methods;
+            this.urls = urls;
+            this.results = new ReplayEngine.Result[urls.size()];
+        }
+
+        void set(ReplayEngine.Result result) {
+            results[result.index] = result;
+            fireTableRowsUpdated(result.index, result.index);
+        }
+
+        @Override
+        public int getRowCount() {
+            return results.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return TYPES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ReplayEngine.Result result = results[row];
+            switch (column) {
+                case 0:
+                    return row + 1;
+                case 1:
+                    return methods.get(row);
+                case 2:
+                    return urls.get(row);
+                case 3:
+                    return result == null || result.error != null ? null : result.status;
+                case 4:
+                    return result == null || result.error != null ? null : result.size;
+                case 5:
+                    return result == null ? null : result.latencyNanos / 1_000_000.0;
+                default:
+                    return result == null ? null : result.error;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package burp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a parsed curl request as raw HTTP/1.1 bytes in one pass: request line, headers, then the
+ * body, into a single exactly sized array that Montoya can wrap without rebuilding the request once
+ * per header. File segments of the body are read from disk directly into that array.
+ * <p>
+ * A {@code Host} header is added unless the command sets one, and {@code Content-Length} is added for
+ * non-empty bodies unless the command sets one. Header text is encoded as UTF-8, the bytes curl would
+ * send for the same arguments.
+ */
+final class RequestAssembler {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private RequestAssembler() {
+    }
+
+    static byte[] toBytes(CurlParser.CurlRequest request) {
+        RequestBody body = request.body();
+        HeaderList headers = request.getHeaders();
+
+        ByteBuilder head = new ByteBuilder(256 + 64 * headers.size());
+        appendText(head, request.getMethod()).append(' ');
+        appendText(head, request.getPath());
+        String query = request.getQuery();
+        if (query != null && !query.isEmpty()) {
+            head.append('?');
+            appendText(head, query);
+        }
+        appendText(head, " HTTP/1.1").append(CRLF, 0, CRLF.length);
+
+        if (!headers.contains("Host")) {
+            appendHeader(head, "Host", hostHeader(request));
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            appendHeader(head, headers.name(i), headers.value(i));
+        }
+        if (body.length() > 0 && !headers.contains("Content-Length")) {
+            appendHeader(head, "Content-Length", Long.toString(body.length()));
+        }
+        head.append(CRLF, 0, CRLF.length);
+
+        long size = head.length() + body.length();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new UncheckedIOException(new IOException("Request of " + size + " bytes is too large"));
+        }
+        byte[] raw = new byte[(int) size];
+        head.copyInto(raw, 0);
+        body.copyInto(raw, head.length());
+        return raw;
+    }
+
+    static boolean isSecure(CurlParser.CurlRequest request) {
+        return "https".equalsIgnoreCase(request.getProtocol());
+    }
+
+    /**
+     * The port to connect to: the one in the URL, or the scheme's default.
+     */
+    static int port(CurlParser.CurlRequest request) {
+        Integer port = request.getPort();
+        if (port == null || port == -1) {
+            return isSecure(request) ? 443 : 80;
+        }
+        return port;
+    }
+
+    private static String hostHeader(CurlParser.CurlRequest request) {
+        int port = port(request);
+        if (port == (isSecure(request) ? 443 : 80)) {
+            return request.getHost();
+        }
+        return request.getHost() + ":" + port;
+    }
+
+    private static void appendHeader(ByteBuilder head, String name, String value) {
+        appendText(head, name).append(':').append(' ');
+        appendText(head, value).append(CRLF, 0, CRLF.length);
+    }
+
+    private static ByteBuilder appendText(ByteBuilder head, String text) {
+        return head.append(text, 0, text.length());
+    }
+}
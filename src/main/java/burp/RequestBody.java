@@ -0,0 +1,119 @@
+package burp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request body kept as a sequence of segments: byte arrays and regions of files that are only read
+ * when the body is finally written out. Multipart uploads and {@code -T} files are copied from disk
+ * once, straight into the request that is handed to Montoya, instead of being loaded into a separate
+ * body array first.
+ */
+final class RequestBody {
+
+    private static final long MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final List<Object> segments = new ArrayList<>(4);
+    private long length;
+    private boolean readsFiles;
+
+    static RequestBody of(byte[] bytes) {
+        return new RequestBody().append(bytes);
+    }
+
+    static RequestBody ofFile(Path file) throws IOException {
+        return new RequestBody().appendFile(file);
+    }
+
+    RequestBody append(byte[] bytes) {
+        if (bytes.length > 0) {
+            segments.add(bytes);
+            length += bytes.length;
+        }
+        return this;
+    }
+
+    RequestBody append(String text) {
+        return append(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Append the whole file; its size is checked against the file size limit now, its content is read
+     * when the body is written.
+     */
+    RequestBody appendFile(Path file) throws IOException {
+        long size = FileReferences.size(file);
+        if (length + size > MAX_LENGTH) {
+            throw new IOException("Request body of " + (length + size) + " bytes is too large");
+        }
+        if (size > 0) {
+            segments.add(new FileRegion(file, (int) size));
+            length += size;
+        }
+        readsFiles = true;
+        return this;
+    }
+
+    long length() {
+        return length;
+    }
+
+    boolean readsFiles() {
+        return readsFiles;
+    }
+
+    /**
+     * Write the body into {@code dest} at {@code offset}.
+     *
+     * @throws UncheckedIOException if a file can no longer be read or has shrunk since it was added
+     */
+    void copyInto(byte[] dest, int offset) {
+        for (Object segment : segments) {
+            if (segment instanceof byte[]) {
+                byte[] bytes = (byte[]) segment;
+                System.arraycopy(bytes, 0, dest, offset, bytes.length);
+                offset += bytes.length;
+            } else {
+                FileRegion region = (FileRegion) segment;
+                try {
+                    int read = FileReferences.copyInto(region.file, dest, offset, region.size);
+                    if (read != region.size) {
+                        throw new IOException("File changed while reading: " + region.file);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                offset += region.size;
+            }
+        }
+    }
+
+    /**
+     * The whole body in one array; a body of a single array returns that array itself.
+     */
+    byte[] toByteArray() {
+        if (segments.size() == 1 && segments.get(0) instanceof byte[]) {
+            return (byte[]) segments.get(0);
+        }
+        if (length > MAX_LENGTH) {
+            throw new UncheckedIOException(new IOException("Request body of " + length + " bytes is too large"));
+        }
+        byte[] bytes = new byte[(int) length];
+        copyInto(bytes, 0);
+        return bytes;
+    }
+
+    private static final class FileRegion {
+        final Path file;
+        final int size;
+
+        FileRegion(Path file, int size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+}
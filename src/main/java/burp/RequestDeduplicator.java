@@ -0,0 +1,382 @@
+package burp;
+
+import burp.api.montoya.http.message.HttpHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recognises requests seen before in a bulk paste or import, so polling requests and retries do
+ * not open one Repeater tab each.
+ * <p>
+ * Requests are compared in a canonical form: upper-case method, lower-case scheme and host, the
+ * default port filled in, query parameters sorted by name, header names compared without case and
+ * sorted, a multipart boundary replaced by a fixed marker in the Content-Type header and the body
+ * (curl picks a random one per run), and tracing headers such as {@code X-Request-Id} left out. The
+ * form is never built as a
+ * string; it is fed straight into a 128-bit MurmurHash3, and only the hashes are kept.
+ * Deduplication is on by default and can be turned off with {@code -Dpastecurl.dedup=false}; the
+ * ignored headers are set with {@code pastecurl.dedupIgnoreHeaders}, a comma-separated list that may
+ * be empty. {@code Cookie} is compared unless added there, so the same request pasted with two
+ * sessions, as in an authorization test, opens two tabs.
+ */
+final class RequestDeduplicator {
+
+    static final String DEFAULT_IGNORED_HEADERS = "X-Request-Id,X-Correlation-Id,Traceparent,Tracestate";
+
+    private final Set<String> ignoredHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<Fingerprint, AtomicInteger> seen = new ConcurrentHashMap<>();
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    RequestDeduplicator(Collection<String> ignoredHeaders) {
+        this.ignoredHeaders.addAll(ignoredHeaders);
+    }
+
+    /**
+     * A deduplicator configured from the system properties, or null if deduplication is off.
+     */
+    static RequestDeduplicator fromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty("pastecurl.dedup", "true"))) {
+            return null;
+        }
+        List<String> ignored = new ArrayList<>();
+        for (String name : System.getProperty("pastecurl.dedupIgnoreHeaders", DEFAULT_IGNORED_HEADERS).split(",")) {
+            if (!name.isBlank()) {
+                ignored.add(name.trim());
+            }
+        }
+        return new RequestDeduplicator(ignored);
+    }
+
+    /**
+     * Record the request; true the first time a request with its canonical form is added.
+     */
+    boolean add(CurlParser.CurlRequest request) {
+        return add(fingerprint(request));
+    }
+
+    boolean add(Fingerprint fingerprint) {
+        AtomicInteger count = seen.computeIfAbsent(fingerprint, f -> new AtomicInteger());
+        if (count.getAndIncrement() == 0) {
+            return true;
+        }
+        duplicates.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Number of requests {@link #add} rejected as duplicates.
+     */
+    int getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * Number of distinct requests added.
+     */
+    int getUnique() {
+        return seen.size();
+    }
+
+    Fingerprint fingerprint(CurlParser.CurlRequest request) {
+        Integer port = request.getPort();
+        return fingerprint(request.getMethod(), request.getProtocol(), request.getHost(), port == null ? -1 : port,
+                request.getPath(), request.getQuery(), request.getHeaders(), request.getBodyBytes());
+    }
+
+    /**
+     * Hash the canonical form of a request.
+     *
+     * @param port  the port, or -1 for the scheme's default
+     * @param query the query without {@code ?}, or null
+     */
+    Fingerprint fingerprint(String method, String scheme, String host, int port, String path, String query,
+                            List<? extends HttpHeader> headers, byte[] body) {
+        Hasher hasher = new Hasher();
+        hasher.putUpperCase(method);
+        hasher.putLowerCase(scheme);
+        hasher.putLowerCase(host);
+        hasher.putInt(port != -1 ? port : "https".equalsIgnoreCase(scheme) ? 443 : 80);
+        hasher.putString(path == null || path.isEmpty() ? "/" : path);
+
+        String[] parameters = query == null || query.isEmpty() ? new String[0] : query.split("&");
+        // Stable, so repeated parameters keep their relative order
+        Arrays.sort(parameters, RequestDeduplicator::compareNames);
+        for (String parameter : parameters) {
+            if (!parameter.isEmpty()) {
+                hasher.putString(parameter);
+            }
+        }
+        hasher.putInt(-1);
+
+        String boundary = null;
+        List<HttpHeader> kept = new ArrayList<>(headers.size());
+        for (HttpHeader header : headers) {
+            if (header.name().equalsIgnoreCase("Content-Type")) {
+                boundary = multipartBoundary(header.value());
+            }
+            if (!ignoredHeaders.contains(header.name())) {
+                kept.add(header);
+            }
+        }
+        kept.sort((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.name(), b.name()));
+        for (HttpHeader header : kept) {
+            hasher.putLowerCase(header.name());
+            if (boundary != null && header.name().equalsIgnoreCase("Content-Type")) {
+                hasher.putString(header.value().replace(boundary, ""));
+            } else {
+                hasher.putString(header.value());
+            }
+        }
+        hasher.putInt(-1);
+
+        if (boundary == null) {
+            hasher.putInt(body.length);
+            hasher.put(body);
+        } else {
+            hasher.putInt(-1);
+            putMultipartBody(hasher, body, ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * The boundary parameter of a multipart Content-Type, or null.
+     */
+    static String multipartBoundary(String contentType) {
+        String lower = contentType.toLowerCase(Locale.ROOT);
+        int start = lower.indexOf("boundary=");
+        if (!lower.startsWith("multipart/") || start < 0) {
+            return null;
+        }
+        start += "boundary=".length();
+        int end = contentType.indexOf(';', start);
+        String boundary = contentType.substring(start, end < 0 ? contentType.length() : end).trim();
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary.isEmpty() ? null : boundary;
+    }
+
+    /**
+     * Hash a multipart body with each boundary delimiter as a marker; zero bytes are escaped so the
+     * marker cannot be forged by the content.
+     */
+    private static void putMultipartBody(Hasher hasher, byte[] body, byte[] delimiter) {
+        int i = 0;
+        while (i < body.length) {
+            if (body[i] == '-' && startsWith(body, i, delimiter)) {
+                hasher.put((byte) 0);
+                hasher.put((byte) 1);
+                i += delimiter.length;
+                continue;
+            }
+            if (body[i] == 0) {
+                hasher.put((byte) 0);
+            }
+            hasher.put(body[i++]);
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        if (bytes.length - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare query parameters by the part before {@code =}.
+     */
+    private static int compareNames(String a, String b) {
+        int aEnd = a.indexOf('=');
+        int bEnd = b.indexOf('=');
+        aEnd = aEnd < 0 ? a.length() : aEnd;
+        bEnd = bEnd < 0 ? b.length() : bEnd;
+        int length = Math.min(aEnd, bEnd);
+        for (int i = 0; i < length; i++) {
+            int diff = a.charAt(i) - b.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aEnd - bEnd;
+    }
+
+    /**
+     * A 128-bit request hash.
+     */
+    static final class Fingerprint {
+        final long high;
+        final long low;
+
+        Fingerprint(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(low);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", high, low);
+        }
+    }
+
+    /**
+     * MurmurHash3 x64 128-bit with seed 0, fed a byte at a time. Strings are written as their
+     * length followed by their chars in UTF-8, so field boundaries cannot shift between requests.
+     */
+    static final class Hasher {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long h1;
+        private long h2;
+        private long k1;
+        private long k2;
+        private int blockLength;
+        private long length;
+
+        void put(byte b) {
+            long value = b & 0xffL;
+            if (blockLength < 8) {
+                k1 |= value << (8 * blockLength);
+            } else {
+                k2 |= value << (8 * (blockLength - 8));
+            }
+            length++;
+            if (++blockLength == 16) {
+                mixBlock();
+            }
+        }
+
+        void put(byte[] bytes) {
+            for (byte b : bytes) {
+                put(b);
+            }
+        }
+
+        void putInt(int value) {
+            put((byte) value);
+            put((byte) (value >> 8));
+            put((byte) (value >> 16));
+            put((byte) (value >> 24));
+        }
+
+        void putString(String text) {
+            putInt(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                putChar(text.charAt(i));
+            }
+        }
+
+        void putLowerCase(String text) {
+            putInt(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                putChar(c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+            }
+        }
+
+        void putUpperCase(String text) {
+            putInt(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                putChar(c >= 'a' && c <= 'z' ? (char) (c - 32) : c);
+            }
+        }
+
+        private void putChar(char c) {
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xc0 | c >> 6));
+                put((byte) (0x80 | c & 0x3f));
+            } else {
+                put((byte) (0xe0 | c >> 12));
+                put((byte) (0x80 | c >> 6 & 0x3f));
+                put((byte) (0x80 | c & 0x3f));
+            }
+        }
+
+        private void mixBlock() {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+            k1 = 0;
+            k2 = 0;
+            blockLength = 0;
+        }
+
+        Fingerprint finish() {
+            // The tail is mixed without the rounds a full block gets; zero lanes mix to zero
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new Fingerprint(h1, h2);
+        }
+
+        private static long mixK1(long k) {
+            k *= C1;
+            k = Long.rotateLeft(k, 31);
+            return k * C2;
+        }
+
+        private static long mixK2(long k) {
+            k *= C2;
+            k = Long.rotateLeft(k, 33);
+            return k * C1;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
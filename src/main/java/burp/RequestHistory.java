@@ -0,0 +1,579 @@
+package burp;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.persistence.PersistedObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded history of the requests sent to Repeater or the site map, kept in the project file.
+ * <p>
+ * Each request is stored under its own key in a compact binary form: varint lengths, common header
+ * names as one-byte codes, and bodies of {@link #COMPRESS_THRESHOLD} bytes or more deflated when that
+ * makes them smaller. A separate index holds one short summary per request (time, method, URL, body
+ * size) in segments of {@link #SEGMENT_SIZE}, so adding a request rewrites one small segment and
+ * listing the history reads only the index. Nothing is read until the history is first used, and a
+ * request's headers and body are only read when it is opened. The oldest requests are dropped past
+ * the limit, 10,000 by default, set with {@code -Dpastecurl.historySize=<entries>} (0 turns the
+ * history off). Bodies larger than 1 MB, or {@code -Dpastecurl.historyMaxBody=<bytes>}, are not
+ * stored, only their length, so a few huge pastes cannot bloat the project file.
+ */
+final class RequestHistory {
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+    static final int SEGMENT_SIZE = 64;
+    static final int COMPRESS_THRESHOLD = 1024;
+    static final int DEFAULT_MAX_BODY = 1024 * 1024;
+
+    static final byte[] NO_BODY = new byte[0];
+
+    static final String KEY = "pastecurl.history";
+    private static final int VERSION = 1;
+    private static final int MAX_URL_CHARS = 300;
+
+    /**
+     * Header names stored as a code instead of text. Append only: codes are positions in this array.
+     */
+    private static final String[] COMMON_HEADERS = {
+            "Host", "User-Agent", "Accept", "Accept-Language", "Accept-Encoding", "Content-Type", "Content-Length",
+            "Cookie", "Authorization", "Origin", "Referer", "Connection", "Cache-Control", "Pragma",
+            "Upgrade-Insecure-Requests", "X-Requested-With", "If-None-Match", "If-Modified-Since", "Priority", "TE",
+            "DNT", "Sec-Fetch-Dest", "Sec-Fetch-Mode", "Sec-Fetch-Site", "Sec-Fetch-User", "Sec-Ch-Ua",
+            "Sec-Ch-Ua-Mobile", "Sec-Ch-Ua-Platform", "X-Forwarded-For", "X-Csrf-Token", "X-Request-Id", "Range"
+    };
+    private static final Map<String, Integer> HEADER_CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < COMMON_HEADERS.length; i++) {
+            HEADER_CODES.put(COMMON_HEADERS[i].toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /**
+     * Where the encoded history lives; {@link #persisted} adapts Burp's project storage.
+     */
+    interface Store {
+        byte[] get(String key);
+
+        void put(String key, byte[] value);
+
+        void remove(String key);
+    }
+
+    private final Store store;
+    private final int maxEntries;
+    private final int maxBody;
+    private final boolean compress;
+
+    private boolean loaded;
+    private long firstId;
+    private long nextId;
+    private ByteBuilder lastSegment;
+
+    RequestHistory(Store store, int maxEntries, boolean compress) {
+        this(store, maxEntries, DEFAULT_MAX_BODY, compress);
+    }
+
+    RequestHistory(Store store, int maxEntries, int maxBody, boolean compress) {
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.maxBody = maxBody;
+        this.compress = compress;
+    }
+
+    /**
+     * The history in the project's extension data, sized from the system properties.
+     */
+    static RequestHistory persisted(PersistedObject data) {
+        Store store = new Store() {
+            @Override
+            public byte[] get(String key) {
+                ByteArray value = data.getByteArray(key);
+                return value == null ? null : value.getBytes();
+            }
+
+            @Override
+            public void put(String key, byte[] value) {
+                data.setByteArray(key, ByteArray.byteArray(value));
+            }
+
+            @Override
+            public void remove(String key) {
+                data.deleteByteArray(key);
+            }
+        };
+        return new RequestHistory(store, Integer.getInteger("pastecurl.historySize", DEFAULT_MAX_ENTRIES),
+                Integer.getInteger("pastecurl.historyMaxBody", DEFAULT_MAX_BODY), true);
+    }
+
+    boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Whether a body of this size is stored; callers can skip copying larger ones and pass
+     * {@link #NO_BODY} with the length instead.
+     */
+    boolean keepsBody(long length) {
+        return length <= maxBody;
+    }
+
+    /**
+     * Store a request, dropping the oldest ones past the limit, including any left over from a
+     * larger limit. A body over the size limit is left out.
+     */
+    synchronized void add(Entry entry) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (!entry.isBodyOmitted() && !keepsBody(entry.body.length)) {
+            entry = entry.withoutBody();
+        }
+        load();
+        long id = nextId++;
+        store.put(entryKey(id), encode(entry));
+        if (id % SEGMENT_SIZE == 0) {
+            lastSegment = new ByteBuilder(SEGMENT_SIZE * 64);
+        }
+        writeSummary(lastSegment, entry);
+        store.put(segmentKey(id / SEGMENT_SIZE), lastSegment.toByteArray());
+
+        while (nextId - firstId > maxEntries) {
+            store.remove(entryKey(firstId));
+            firstId++;
+            if (firstId % SEGMENT_SIZE == 0) {
+                store.remove(segmentKey(firstId / SEGMENT_SIZE - 1));
+            }
+        }
+        saveHeader();
+    }
+
+    /**
+     * Summaries of the stored requests, newest first; reads the index but no requests.
+     */
+    synchronized List<Summary> summaries() {
+        if (!isEnabled()) {
+            return Collections.emptyList();
+        }
+        load();
+        List<Summary> summaries = new ArrayList<>((int) (nextId - firstId));
+        for (long segment = firstId / SEGMENT_SIZE; segment * SEGMENT_SIZE < nextId; segment++) {
+            byte[] data = store.get(segmentKey(segment));
+            if (data == null) {
+                continue;
+            }
+            Input input = new Input(data);
+            long first = segment * SEGMENT_SIZE;
+            try {
+                for (long id = first; input.hasMore(); id++) {
+                    Summary summary = new Summary(id, input.varint(), input.string(), input.string(), input.varint());
+                    if (id >= firstId) {
+                        summaries.add(summary);
+                    }
+                }
+            } catch (IllegalStateException e) {
+                Log.warn(() -> "Skipping damaged request history index from entry " + first);
+            }
+        }
+        Collections.reverse(summaries);
+        return summaries;
+    }
+
+    /**
+     * Read a stored request in full, or null if it has been dropped or cannot be read.
+     */
+    synchronized Entry open(Summary summary) {
+        byte[] data = store.get(entryKey(summary.id));
+        if (data == null) {
+            return null;
+        }
+        try {
+            return decode(data);
+        } catch (IllegalStateException e) {
+            Log.warn(() -> "Cannot read history entry " + summary.id + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    synchronized int size() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        load();
+        return (int) (nextId - firstId);
+    }
+
+    /**
+     * Read the history header and the segment that new summaries are appended to, once.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        byte[] header = store.get(KEY);
+        if (header != null) {
+            try {
+                Input input = new Input(header);
+                if (input.varint() != VERSION) {
+                    throw new IllegalStateException("unknown version");
+                }
+                firstId = input.varint();
+                nextId = input.varint();
+            } catch (IllegalStateException e) {
+                Log.warn(() -> "Starting a new request history, the stored one cannot be read: " + e.getMessage());
+                firstId = 0;
+                nextId = 0;
+            }
+        }
+        lastSegment = new ByteBuilder(SEGMENT_SIZE * 64);
+        if (nextId % SEGMENT_SIZE != 0) {
+            byte[] segment = store.get(segmentKey(nextId / SEGMENT_SIZE));
+            if (segment != null) {
+                lastSegment.append(segment, 0, segment.length);
+            }
+        }
+    }
+
+    private void saveHeader() {
+        ByteBuilder header = new ByteBuilder(24);
+        writeVarint(header, VERSION);
+        writeVarint(header, firstId);
+        writeVarint(header, nextId);
+        store.put(KEY, header.toByteArray());
+    }
+
+    private static String entryKey(long id) {
+        return KEY + "." + id;
+    }
+
+    private static String segmentKey(long segment) {
+        return KEY + ".index." + segment;
+    }
+
+    private static void writeSummary(ByteBuilder out, Entry entry) {
+        writeVarint(out, entry.time);
+        writeString(out, entry.method);
+        String url = entry.url();
+        writeString(out, url.length() > MAX_URL_CHARS ? url.substring(0, MAX_URL_CHARS) : url);
+        writeVarint(out, entry.bodyLength);
+    }
+
+    byte[] encode(Entry entry) {
+        ByteBuilder out = new ByteBuilder(128 + entry.body.length);
+        writeVarint(out, VERSION);
+        writeVarint(out, entry.time);
+        out.append(entry.secure ? 1 : 0);
+        writeString(out, entry.host);
+        writeVarint(out, entry.port);
+        writeString(out, entry.method);
+        writeString(out, entry.path);
+        writeString(out, entry.httpVersion);
+        writeVarint(out, entry.headers.size());
+        for (HttpHeader header : entry.headers) {
+            writeHeaderName(out, header.name());
+            writeString(out, header.value());
+        }
+        writeBody(out, entry);
+        return out.toByteArray();
+    }
+
+    static Entry decode(byte[] data) {
+        Input input = new Input(data);
+        if (input.varint() != VERSION) {
+            throw new IllegalStateException("unknown version");
+        }
+        long time = input.varint();
+        boolean secure = input.read() == 1;
+        String host = input.string();
+        int port = (int) input.varint();
+        String method = input.string();
+        String path = input.string();
+        String httpVersion = input.string();
+        int count = (int) input.varint();
+        List<HttpHeader> headers = new ArrayList<>(Math.min(count, 256));
+        for (int i = 0; i < count; i++) {
+            headers.add(HttpHeaderImpl.of(input.headerName(), input.string()));
+        }
+        long bodyLength = input.varint();
+        return new Entry(time, secure, host, port, method, path, httpVersion, headers, input.body(bodyLength), bodyLength);
+    }
+
+    /**
+     * A common name as {@code 2 * (code + 1)}, plus one if it is written in lower case as in HTTP/2;
+     * any other name as 0 followed by the text.
+     */
+    private static void writeHeaderName(ByteBuilder out, String name) {
+        Integer code = HEADER_CODES.get(name.toLowerCase(Locale.ROOT));
+        if (code != null && name.equals(COMMON_HEADERS[code])) {
+            writeVarint(out, 2L * (code + 1));
+        } else if (code != null && name.equals(COMMON_HEADERS[code].toLowerCase(Locale.ROOT))) {
+            writeVarint(out, 2L * (code + 1) + 1);
+        } else {
+            writeVarint(out, 0);
+            writeString(out, name);
+        }
+    }
+
+    /**
+     * The body as its length, then for non-empty bodies 0 and the bytes, 1, the deflated length and
+     * the deflated bytes, or 2 if the body was left out.
+     */
+    private void writeBody(ByteBuilder out, Entry entry) {
+        byte[] body = entry.body;
+        writeVarint(out, entry.bodyLength);
+        if (entry.isBodyOmitted()) {
+            out.append(2);
+            return;
+        }
+        if (body.length == 0) {
+            return;
+        }
+        if (compress && body.length >= COMPRESS_THRESHOLD) {
+            byte[] deflated = deflate(body);
+            if (deflated.length < body.length) {
+                out.append(1);
+                writeVarint(out, deflated.length);
+                out.append(deflated, 0, deflated.length);
+                return;
+            }
+        }
+        out.append(0);
+        out.append(body, 0, body.length);
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static void writeVarint(ByteBuilder out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.append((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.append((int) value);
+    }
+
+    /**
+     * Text as ISO-8859-1, which holds Burp's header and path strings without loss.
+     */
+    private static void writeString(ByteBuilder out, String text) {
+        writeVarint(out, text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            out.append((int) (c <= 0xff ? c : '?'));
+        }
+    }
+
+    /**
+     * Reads the encoding back; throws {@link IllegalStateException} on damaged data.
+     */
+    private static final class Input {
+        private final byte[] data;
+        private int position;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        boolean hasMore() {
+            return position < data.length;
+        }
+
+        int read() {
+            if (position >= data.length) {
+                throw new IllegalStateException("truncated data");
+            }
+            return data[position++] & 0xff;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("bad varint");
+        }
+
+        private int length() {
+            long length = varint();
+            if (length > data.length - position) {
+                throw new IllegalStateException("length " + length + " past the end of the data");
+            }
+            return (int) length;
+        }
+
+        String string() {
+            int length = length();
+            String text = new String(data, position, length, StandardCharsets.ISO_8859_1);
+            position += length;
+            return text;
+        }
+
+        String headerName() {
+            int code = (int) varint();
+            if (code == 0) {
+                return string();
+            }
+            int index = code / 2 - 1;
+            if (index >= COMMON_HEADERS.length) {
+                throw new IllegalStateException("unknown header code " + code);
+            }
+            return code % 2 == 0 ? COMMON_HEADERS[index] : COMMON_HEADERS[index].toLowerCase(Locale.ROOT);
+        }
+
+        byte[] body(long length) {
+            if (length == 0) {
+                return NO_BODY;
+            }
+            int format = read();
+            if (format == 2) {
+                return NO_BODY;
+            }
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("body too large");
+            }
+            if (format == 0) {
+                if (length > data.length - position) {
+                    throw new IllegalStateException("body past the end of the data");
+                }
+                byte[] body = new byte[(int) length];
+                System.arraycopy(data, position, body, 0, body.length);
+                position += body.length;
+                return body;
+            }
+            int deflatedLength = length();
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data, position, deflatedLength);
+                byte[] body = new byte[(int) length];
+                int inflated = inflater.inflate(body);
+                if (inflated != body.length) {
+                    throw new IllegalStateException("body shorter than recorded");
+                }
+                position += deflatedLength;
+                return body;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("damaged compressed body", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * A stored request: where it was sent and its parts, with header and path text as in Burp. A body
+     * that was too large to keep is empty, with its original length in {@code bodyLength}.
+     */
+    static final class Entry {
+        final long time;
+        final boolean secure;
+        final String host;
+        final int port;
+        final String method;
+        final String path;
+        final String httpVersion;
+        final List<HttpHeader> headers;
+        final byte[] body;
+        final long bodyLength;
+
+        Entry(long time, boolean secure, String host, int port, String method, String path, String httpVersion,
+              List<HttpHeader> headers, byte[] body) {
+            this(time, secure, host, port, method, path, httpVersion, headers, body, body.length);
+        }
+
+        Entry(long time, boolean secure, String host, int port, String method, String path, String httpVersion,
+              List<HttpHeader> headers, byte[] body, long bodyLength) {
+            this.time = time;
+            this.secure = secure;
+            this.host = host;
+            this.port = port;
+            this.method = method;
+            this.path = path;
+            this.httpVersion = httpVersion;
+            this.headers = headers;
+            this.body = body;
+            this.bodyLength = bodyLength;
+        }
+
+        boolean isBodyOmitted() {
+            return body.length < bodyLength;
+        }
+
+        Entry withoutBody() {
+            return new Entry(time, secure, host, port, method, path, httpVersion, headers, NO_BODY, bodyLength);
+        }
+
+        String url() {
+            boolean defaultPort = port == (secure ? 443 : 80);
+            return (secure ? "https://" : "http://") + host + (defaultPort ? "" : ":" + port) + path;
+        }
+
+        /**
+         * The request as raw bytes, for rebuilding it in Burp.
+         */
+        byte[] toBytes() {
+            ByteBuilder out = new ByteBuilder(256 + body.length);
+            appendLatin1(out, method + " " + path + " " + httpVersion + "\r\n");
+            for (HttpHeader header : headers) {
+                appendLatin1(out, header.name() + ": " + header.value() + "\r\n");
+            }
+            appendLatin1(out, "\r\n");
+            out.append(body, 0, body.length);
+            return out.toByteArray();
+        }
+
+        private static void appendLatin1(ByteBuilder out, String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                out.append((int) (c <= 0xff ? c : '?'));
+            }
+        }
+    }
+
+    /**
+     * One line of the index.
+     */
+    static final class Summary {
+        final long id;
+        final long time;
+        final String method;
+        final String url;
+        final long bodyLength;
+
+        Summary(long id, long time, String method, String url, long bodyLength) {
+            this.id = id;
+            this.time = time;
+            this.method = method;
+            this.url = url;
+            this.bodyLength = bodyLength;
+        }
+    }
+}
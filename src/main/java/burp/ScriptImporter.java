@@ -0,0 +1,308 @@
+package burp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Imports the curl commands found in script files and directories.
+ * <p>
+ * Files are parsed in parallel on the given (work-stealing) pool, one task per file, and the built
+ * requests are handed to the consumer on the calling thread through a bounded queue. When the
+ * consumer falls behind, parser tasks block on the full queue, so a large import never holds more
+ * than {@link #DEFAULT_QUEUE_CAPACITY} finished requests in memory at once. Relative file names in
+ * the commands are resolved against the directory of their script, as running it from there would.
+ *
+ * @param <T> the request type the consumer takes, e.g. a built HttpRequest
+ */
+public class ScriptImporter<T> {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    // Failures listed individually in the summary; the rest are only counted
+    private static final int MAX_LISTED_FAILURES = 20;
+
+    private static final String[] SCRIPT_EXTENSIONS = {".sh", ".bash", ".zsh", ".curl", ".txt"};
+
+    // Batch and PowerShell scripts continue lines with ^ or ` and quote differently; the splitter only speaks bash
+    private static final String[] UNSUPPORTED_EXTENSIONS = {".cmd", ".bat", ".ps1"};
+
+    private static final Object FILE_DONE = new Object();
+
+    private final ExecutorService pool;
+    private final Function<CurlParser.CurlRequest, T> builder;
+    private final int queueCapacity;
+
+    private final AtomicInteger commands = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+    private int files;
+    private int imported;
+    private volatile boolean cancelled;
+
+    public ScriptImporter(ExecutorService pool, Function<CurlParser.CurlRequest, T> builder) {
+        this(pool, builder, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ScriptImporter(ExecutorService pool, Function<CurlParser.CurlRequest, T> builder, int queueCapacity) {
+        this.pool = pool;
+        this.builder = builder;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Find the script files under {@code roots}. Files chosen directly are always included; inside
+     * directories only files with a script extension are, and hidden directories such as
+     * {@code .git} are skipped.
+     */
+    public static List<Path> findScripts(List<Path> roots) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (Path root : roots) {
+            if (Files.isRegularFile(root)) {
+                scripts.add(root);
+                continue;
+            }
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    Path name = dir.getFileName();
+                    if (!dir.equals(root) && name != null && name.toString().startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isScript(file)) {
+                        scripts.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    Log.warn(() -> "Skipping " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return scripts;
+    }
+
+    /**
+     * Parse every command in {@code scripts} and pass each built request to {@code consumer} on the
+     * calling thread, in no particular order across files. Stops early if {@link #cancel()} is called,
+     * the calling thread is interrupted or the pool is shut down.
+     *
+     * @param progress called on the calling thread after every file and every 25 requests
+     */
+    public void importScripts(List<Path> scripts, Consumer<T> consumer, Runnable progress) throws InterruptedIOException {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        int remaining = scripts.size();
+        for (Path script : scripts) {
+            pool.execute(() -> parseScript(script, queue));
+        }
+
+        try {
+            while (remaining > 0) {
+                Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                if (item == null) {
+                    if (pool.isShutdown()) {
+                        // Files still queued on the pool will never report back
+                        throw new InterruptedException();
+                    }
+                    continue;
+                }
+                if (item == FILE_DONE) {
+                    remaining--;
+                    files++;
+                    progress.run();
+                } else if (!cancelled) {
+                    @SuppressWarnings("unchecked")
+                    T request = (T) item;
+                    consumer.accept(request);
+                    if (++imported % 25 == 0) {
+                        progress.run();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            // Let blocked parser tasks finish so they do not hold pool threads
+            drainUntilDone(queue, remaining, pool);
+            throw new InterruptedIOException("Script import cancelled");
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Number of script files read so far.
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    public int getCommands() {
+        return commands.get();
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Summary of what failed, one line per failure up to a limit, for showing to the user.
+     */
+    public String describeFailures() {
+        StringBuilder summary = new StringBuilder();
+        synchronized (failures) {
+            for (String failure : failures) {
+                summary.append(failure).append('\n');
+            }
+        }
+        int unlisted = failed.get() - failures.size();
+        if (unlisted > 0) {
+            summary.append("... and ").append(unlisted).append(" more\n");
+        }
+        return summary.toString();
+    }
+
+    private void parseScript(Path script, BlockingQueue<Object> queue) {
+        try {
+            if (cancelled) {
+                return;
+            }
+            if (hasExtension(script, UNSUPPORTED_EXTENSIONS)) {
+                fail(script + ": batch and PowerShell scripts are not supported, save the commands as a shell script");
+                return;
+            }
+            List<String> scriptCommands;
+            try {
+                scriptCommands = CurlCommandSplitter.split(readScript(script));
+            } catch (IOException | RuntimeException e) {
+                fail(script + ": " + e.getMessage());
+                return;
+            }
+            commands.addAndGet(scriptCommands.size());
+            for (int i = 0; i < scriptCommands.size() && !cancelled; i++) {
+                T request = build(scriptCommands.get(i), script.toAbsolutePath().getParent());
+                if (request == null) {
+                    fail(script + ": command " + (i + 1) + " could not be parsed");
+                } else {
+                    queue.put(request);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putDone(queue);
+        }
+    }
+
+    private T build(String command, Path scriptDirectory) {
+        try {
+            CurlParser.CurlRequest curlRequest = CurlParser.parseScriptCommand(command, scriptDirectory);
+            return curlRequest == null ? null : builder.apply(curlRequest);
+        } catch (RuntimeException e) {
+            Log.error("Failed to import curl command", e);
+            return null;
+        }
+    }
+
+    private void fail(String failure) {
+        if (failed.incrementAndGet() <= MAX_LISTED_FAILURES) {
+            failures.add(failure);
+        }
+        Log.warn(() -> "Import failed: " + failure);
+    }
+
+    private static void putDone(BlockingQueue<Object> queue) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(FILE_DONE);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for the parser tasks to report back, or for the pool to terminate if it was shut down and
+     * dropped the files it had not started.
+     */
+    private static void drainUntilDone(BlockingQueue<Object> queue, int remaining, ExecutorService pool) {
+        while (remaining > 0) {
+            try {
+                Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (item == FILE_DONE) {
+                    remaining--;
+                } else if (item == null && pool.isTerminated()) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                // Keep draining; the cancel flag stops the parser tasks shortly
+            }
+        }
+        Thread.currentThread().interrupt();
+    }
+
+    private static String readScript(Path script) throws IOException {
+        FileReferences.size(script);
+        try {
+            return Files.readString(script, StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            return Files.readString(script, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static boolean isScript(Path file) {
+        return hasExtension(file, SCRIPT_EXTENSIONS) || file.getFileName().toString().indexOf('.') == -1;
+    }
+
+    private static boolean hasExtension(Path file, String[] extensions) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,171 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hostile clipboard content must be handled in time and memory linear in its length. Every input
+ * here is around a million characters, where a quadratic scan would take minutes, and each run is
+ * held to a time budget and to an allocation budget of a fixed number of bytes per input character.
+ */
+class AdversarialInputTest {
+
+    private static final int SIZE = 1_000_000;
+    private static final Duration TIME_BUDGET = Duration.ofSeconds(10);
+
+    @Test
+    public void unclosedSingleQuote() {
+        String command = "curl https://example.com -d '" + "a".repeat(SIZE);
+
+        CurlParser.CurlRequest request = parseWithinBudget(command, 8);
+
+        assertNotNull(request);
+        assertEquals(SIZE, request.getBodyLength());
+    }
+
+    @Test
+    public void unclosedDoubleQuoteOfEscapes() {
+        String command = "curl https://example.com -H \"X-Test: " + "\\\"".repeat(SIZE / 2);
+
+        CurlParser.CurlRequest request = parseWithinBudget(command, 8);
+
+        assertNotNull(request);
+        assertEquals(SIZE / 2, request.getHeaders().first("X-Test").length());
+    }
+
+    @Test
+    public void unclosedAnsiCQuoteOfEscapes() {
+        String command = "curl https://example.com --data-binary $'" + "\\x41\\u00e9".repeat(SIZE / 10);
+
+        CurlParser.CurlRequest request = parseWithinBudget(command, 8);
+
+        assertNotNull(request);
+        assertEquals(3L * SIZE / 10, request.getBodyLength());
+    }
+
+    @Test
+    public void millionRepeatedHeaders() {
+        StringBuilder command = new StringBuilder(12 * SIZE + 32).append("curl https://example.com");
+        for (int i = 0; i < SIZE; i++) {
+            command.append(" -H 'X-A: b'");
+        }
+
+        CurlParser.CurlRequest request = parseWithinBudget(command.toString(), 64);
+
+        assertNotNull(request);
+        assertEquals(SIZE, request.getHeaders().size());
+        assertEquals(SIZE, request.getHeaders().values("x-a").size());
+    }
+
+    @Test
+    public void manyCookiesAndDataArguments() {
+        StringBuilder command = new StringBuilder(20 * SIZE / 10).append("curl https://example.com");
+        for (int i = 0; i < SIZE / 20; i++) {
+            command.append(" -b c=").append(i % 10).append(" -d x");
+        }
+
+        CurlParser.CurlRequest request = parseWithinBudget(command.toString(), 48);
+
+        assertNotNull(request);
+        assertEquals(2L * SIZE / 20 - 1, request.getBodyLength());
+        assertEquals(1, request.getHeaders().values("Cookie").size());
+    }
+
+    @Test
+    public void deepBackslashRuns() {
+        String trailing = "curl https://example.com/" + "\\".repeat(SIZE);
+        CurlParser.CurlRequest request = parseWithinBudget(trailing, 8);
+        assertNotNull(request);
+
+        String escaped = "curl https://example.com -d " + "\\\\".repeat(SIZE / 2);
+        request = parseWithinBudget(escaped, 8);
+        assertNotNull(request);
+        assertEquals(SIZE / 2, request.getBodyLength());
+
+        String continuations = "curl https://example.com" + " \\\n".repeat(SIZE / 3) + " -d x";
+        request = parseWithinBudget(continuations, 8);
+        assertNotNull(request);
+        assertEquals("x", request.getBody());
+    }
+
+    @Test
+    public void longWhitespaceRuns() {
+        String command = "curl" + " ".repeat(SIZE) + "https://example.com" + "\t\r\n ".repeat(SIZE / 4);
+
+        CurlParser.CurlRequest request = parseWithinBudget(command, 8);
+
+        assertNotNull(request);
+        assertEquals("example.com", request.getHost());
+        withinBudget(command.length(), 8, () -> Log.summarize(command, 200));
+    }
+
+    @Test
+    public void noUrl() {
+        String command = "curl " + "http:/".repeat(SIZE / 6);
+
+        assertNull(parseWithinBudget(command, 8));
+        assertNull(withinBudget(command.length(), 8, () -> CurlParser.extractUrl(command)));
+    }
+
+    @Test
+    public void helpersOnHostileInput() {
+        String command = "curl https://example.com -d '@" + "a".repeat(SIZE);
+
+        withinBudget(command.length(), 8, () -> CurlParser.extractUrl(command));
+        List<String> data = withinBudget(command.length(), 8, () -> CurlParser.extractFlagValues(command, CurlParser.Flag.DATA));
+        assertEquals(1, data.size());
+        assertTrue(withinBudget(command.length(), 8, () -> CurlParser.referencesFiles(command)));
+    }
+
+    @Test
+    public void splitterOnUnclosedQuotesAndManyCommands() {
+        String unclosed = "curl 'https://example.com\n" + "curl https://example.com\n".repeat(SIZE / 25);
+        List<String> commands = withinBudget(unclosed.length(), 8, () -> CurlCommandSplitter.split(unclosed));
+        assertEquals(1, commands.size());
+
+        String many = "curl;".repeat(SIZE / 5);
+        commands = withinBudget(many.length(), 64, () -> CurlCommandSplitter.split(many));
+        assertEquals(SIZE / 5, commands.size());
+    }
+
+    private static CurlParser.CurlRequest parseWithinBudget(String command, int bytesPerChar) {
+        return withinBudget(command.length(), bytesPerChar, () -> CurlParser.parseCurlCommand(command));
+    }
+
+    /**
+     * Run {@code work} within the time budget and check it allocated at most {@code bytesPerChar}
+     * bytes per input character, plus a small constant.
+     */
+    private static <T> T withinBudget(int inputLength, int bytesPerChar, Supplier<T> work) {
+        return assertTimeoutPreemptively(TIME_BUDGET, () -> {
+            long before = allocatedBytes();
+            T result = work.get();
+            long allocated = allocatedBytes() - before;
+            if (before >= 0) {
+                long budget = (long) bytesPerChar * inputLength + 1024 * 1024;
+                assertTrue(allocated <= budget, "allocated " + allocated + " bytes, budget " + budget);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM does not track it.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,47 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClipboardPreviewTest {
+
+    @Test
+    public void labelWithDescription() {
+        assertEquals("Paste cURL command", ClipboardPreview.NONE.label());
+        assertEquals("Paste cURL command (no curl detected)",
+                new ClipboardPreview(new Object(), null, null, "no curl detected").label());
+    }
+
+    @Test
+    public void describeShortensLongPaths() {
+        assertEquals("GET example.com/a?b=1", ClipboardPreview.describe("GET", "example.com", "/a?b=1"));
+
+        String described = ClipboardPreview.describe("POST", "example.com", "/" + "x".repeat(100));
+        assertEquals("POST example.com/" + "x".repeat(56) + "...", described);
+    }
+
+    @Test
+    public void reusedForSameContentsOrText() {
+        Object contents = new Object();
+        ParseCache.Key key = ParseCache.Key.of("curl https://example.com");
+        ClipboardPreview preview = new ClipboardPreview(contents, key, null, "GET example.com/");
+
+        assertTrue(preview.isFrom(contents));
+        assertFalse(preview.isFrom(new Object()));
+        assertFalse(preview.isFrom(null));
+        assertTrue(preview.matches(ParseCache.Key.of("curl https://example.com")));
+        assertFalse(preview.matches(ParseCache.Key.of("curl https://example.org")));
+
+        Object copied = new Object();
+        ClipboardPreview reread = preview.from(copied);
+        assertTrue(reread.isFrom(copied));
+        assertEquals(preview.label(), reread.label());
+    }
+
+    @Test
+    public void unreadClipboardNeverMatches() {
+        assertFalse(ClipboardPreview.NONE.isFrom(null));
+        assertFalse(ClipboardPreview.NONE.matches(ParseCache.Key.of("")));
+    }
+}
@@ -0,0 +1,121 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.datatransfer.DataFlavor;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClipboardSnifferTest {
+
+    @Test
+    public void recognizesCurlCommands() throws IOException {
+        assertTrue(new ClipboardSniffer(new StringReader("curl https://example.com")).looksLikeCurl());
+        assertTrue(new ClipboardSniffer(new StringReader("$ /usr/bin/curl -s 'HTTP://example.com'")).looksLikeCurl());
+        assertTrue(new ClipboardSniffer(new StringReader("curl.exe \"https://example.com\"")).looksLikeCurl());
+
+        assertFalse(new ClipboardSniffer(new StringReader("curly https://example.com")).looksLikeCurl());
+        assertFalse(new ClipboardSniffer(new StringReader("curl example.com")).looksLikeCurl());
+        assertFalse(new ClipboardSniffer(new StringReader("GET https://example.com")).looksLikeCurl());
+        assertTrue(new ClipboardSniffer(new StringReader(" \n\t")).isBlank());
+    }
+
+    @Test
+    public void rejectsLargeTextAfterReadingOnlyThePrefix() throws IOException {
+        CountingReader log = new CountingReader('x', 300L * 1024 * 1024);
+
+        ClipboardSniffer sniffer = new ClipboardSniffer(log);
+
+        assertFalse(sniffer.looksLikeCurl());
+        assertFalse(sniffer.isComplete());
+        assertEquals(ClipboardSniffer.SNIFF_CHARS, log.read);
+    }
+
+    @Test
+    public void urlMayFollowThePrefix() throws IOException {
+        String command = "curl -d '" + "a".repeat(100) + "' https://example.com";
+
+        ClipboardSniffer sniffer = new ClipboardSniffer(new StringReader(command), 16);
+
+        assertTrue(sniffer.looksLikeCurl());
+        assertEquals(command, sniffer.readAll());
+    }
+
+    @Test
+    public void restStopsAtTheLimit() throws IOException {
+        long previous = ClipboardSniffer.getMaxChars();
+        ClipboardSniffer.setMaxChars(1000);
+        try {
+            ClipboardSniffer sniffer = new ClipboardSniffer(new CountingReader('a', 1_000_000), 16);
+
+            IOException e = assertThrows(IOException.class, sniffer::readAll);
+            assertTrue(e.getMessage().contains("pastecurl.maxClipboardChars"));
+            assertTrue(sniffer.exceededLimit());
+
+            ClipboardSniffer small = new ClipboardSniffer(new CountingReader('a', 1000), 16);
+            assertEquals(1000, small.readAll().length());
+            assertFalse(small.exceededLimit());
+        } finally {
+            ClipboardSniffer.setMaxChars(previous);
+        }
+    }
+
+    @Test
+    public void streamingParseReportsTheLimit() throws IOException {
+        long previous = ClipboardSniffer.getMaxChars();
+        ClipboardSniffer.setMaxChars(1000);
+        try {
+            String command = "curl https://example.com -d '" + "a".repeat(5000) + "'";
+            ClipboardSniffer sniffer = new ClipboardSniffer(new StringReader(command), 64);
+
+            assertNull(CurlParser.parseCurlCommand(sniffer.rest(), null));
+            assertTrue(sniffer.exceededLimit());
+        } finally {
+            ClipboardSniffer.setMaxChars(previous);
+        }
+    }
+
+    @Test
+    public void prefersPlainTextOverMarkup() throws Exception {
+        DataFlavor html = new DataFlavor("text/html;class=java.io.Reader");
+        DataFlavor rtf = new DataFlavor("text/rtf;class=java.io.InputStream");
+        DataFlavor plain = new DataFlavor("text/plain;class=java.io.InputStream;charset=UTF-8");
+
+        assertEquals(plain, ClipboardSniffer.plainTextFlavor(new DataFlavor[]{html, rtf, plain, DataFlavor.stringFlavor}));
+        assertEquals(DataFlavor.stringFlavor, ClipboardSniffer.plainTextFlavor(new DataFlavor[]{html, DataFlavor.stringFlavor}));
+        assertNull(ClipboardSniffer.plainTextFlavor(new DataFlavor[]{html, rtf}));
+    }
+
+    /**
+     * Produces {@code length} copies of one character without holding them, counting what was read.
+     */
+    private static final class CountingReader extends Reader {
+        private final char c;
+        private final long length;
+        long read;
+
+        CountingReader(char c, long length) {
+            this.c = c;
+            this.length = length;
+        }
+
+        @Override
+        public int read(char[] dest, int offset, int count) {
+            if (read == length) {
+                return -1;
+            }
+            int n = (int) Math.min(count, length - read);
+            Arrays.fill(dest, offset, offset + n, c);
+            read += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurlCommandSplitterTest {
+
+    @Test
+    public void splitDevToolsCopyAll() {
+        List<String> commands = CurlCommandSplitter.split(
+                "curl 'https://example.com/a' \\\n  -H 'accept: */*' ;\n" +
+                "curl 'https://example.com/b' \\\n  --data-raw 'x=1' ;\n");
+
+        assertEquals(2, commands.size());
+        assertEquals("curl 'https://example.com/a' \\\n  -H 'accept: */*'", commands.get(0));
+        assertEquals("/b", CurlParser.parseCurlCommand(commands.get(1)).getPath());
+    }
+
+    @Test
+    public void splitKeepsQuotedNewlinesAndSemicolons() {
+        List<String> commands = CurlCommandSplitter.split(
+                "curl https://example.com/a --data-raw '{\n  \"a\": \"x;\ncurl y\"\n}'\n" +
+                "curl https://example.com/b -d $'it\\'s;\\n'\n");
+
+        assertEquals(2, commands.size());
+        assertEquals("{\n  \"a\": \"x;\ncurl y\"\n}", CurlParser.parseCurlCommand(commands.get(0)).getBody());
+        assertEquals("it's;\n", CurlParser.parseCurlCommand(commands.get(1)).getBody());
+    }
+
+    @Test
+    public void splitWindowsLineEndings() {
+        List<String> commands = CurlCommandSplitter.split(
+                "curl 'https://example.com/a' \\\r\n  -H 'accept: */*' \\\r\n  --data-raw 'x=1'\r\n" +
+                "curl 'https://example.com/b' \\\r\n  -H 'x-test: 1'\r\n");
+
+        assertEquals(2, commands.size());
+        CurlParser.CurlRequest first = CurlParser.parseCurlCommand(commands.get(0));
+        assertEquals("*/*", first.getHeaders().first("accept"));
+        assertEquals("x=1", first.getBody());
+        assertEquals("1", CurlParser.parseCurlCommand(commands.get(1)).getHeaders().first("x-test"));
+    }
+
+    @Test
+    public void splitIgnoresNonCurlLines() {
+        List<String> commands = CurlCommandSplitter.split(
+                "#!/bin/sh\necho start\ncurl https://example.com/a\n\n  curl.exe https://example.com/b\ncurly https://example.com/c");
+
+        assertEquals(List.of("curl https://example.com/a", "curl.exe https://example.com/b"), commands);
+    }
+
+    @Test
+    public void apostrophesInCommentsDoNotSwallowCommands() {
+        List<String> commands = CurlCommandSplitter.split(
+                "# Here's the login request\ncurl https://example.com/a\n# and the other one's here\n"
+                        + "curl https://example.com/b # the user's session\n");
+
+        assertEquals(List.of("curl https://example.com/a", "curl https://example.com/b"), commands);
+    }
+
+    @Test
+    public void apostrophesInOtherCommandsDoNotSwallowCommands() {
+        List<String> commands = CurlCommandSplitter.split("echo don't\ncurl https://example.com/a\necho \"it's\"; curl https://example.com/b\n");
+
+        assertEquals(List.of("curl https://example.com/a", "curl https://example.com/b"), commands);
+    }
+
+    @Test
+    public void hashInsideWordsIsNotAComment() {
+        List<String> commands = CurlCommandSplitter.split("curl https://example.com/a#top -d 'x #1'\n");
+
+        assertEquals(List.of("curl https://example.com/a#top -d 'x #1'"), commands);
+    }
+
+    @Test
+    public void splitEmpty() {
+        assertTrue(CurlCommandSplitter.split("").isEmpty());
+        assertTrue(CurlCommandSplitter.split(null).isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurlConverterTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String input, String... args) {
+        InputStream in = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+        return CurlConverter.run(args, in, out, new PrintStream(err, true));
+    }
+
+    @Test
+    public void rawOutputKeepsInputOrder() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append("curl https://example.com/").append(i).append('\n');
+        }
+
+        assertEquals(0, run(input.toString(), "-j", "4"));
+
+        String[] requests = out.toString(StandardCharsets.UTF_8).split("\r\n\r\n\n");
+        assertEquals(1000, requests.length);
+        for (int i = 0; i < requests.length; i++) {
+            assertTrue(requests[i].startsWith("GET /" + i + " HTTP/1.1\r\n"), requests[i]);
+        }
+    }
+
+    @Test
+    public void jsonLinesReportFailuresInPlace() {
+        String input = "curl https://example.com/a -H 'X-Test: \"quoted\"'\n"
+                + "\n"
+                + "# comment\n"
+                + "curl -X POST https://example.com/b \\\r\n"
+                + "  --data-binary $'\\xff'\n"
+                + "curl -X\n";
+
+        assertEquals(1, run(input, "--format", "jsonl"));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"source\":\"-\",\"line\":1,\"method\":\"GET\",\"url\":\"https://example.com/a\","
+                + "\"headers\":[{\"name\":\"X-Test\",\"value\":\"\\\"quoted\\\"\"}]}", lines[0]);
+        assertTrue(lines[1].startsWith("{\"source\":\"-\",\"line\":4,\"method\":\"POST\""), lines[1]);
+        assertTrue(lines[1].endsWith(",\"bodyBase64\":\"/w==\"}"), lines[1]);
+        assertEquals("{\"source\":\"-\",\"line\":6,\"error\":\"could not be parsed\"}", lines[2]);
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("-:6: could not be parsed"));
+    }
+
+    @Test
+    public void nulDelimitedCommandsMaySpanLines() throws Exception {
+        CurlConverter.CommandReader reader = new CurlConverter.CommandReader(
+                new StringReader("curl https://example.com/a -d 'line1\nline2'\0\0  \0curl https://example.com/b"), '\0');
+
+        List<String> commands = new ArrayList<>();
+        String command;
+        while ((command = reader.next()) != null) {
+            commands.add(command);
+        }
+
+        assertEquals(List.of("curl https://example.com/a -d 'line1\nline2'", "curl https://example.com/b"), commands);
+    }
+
+    @Test
+    public void usageErrors() {
+        assertEquals(2, run("", "--format", "xml"));
+        assertEquals(2, run("", "-j", "0"));
+        assertEquals(2, run("", "--unknown"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Usage:"));
+    }
+
+    @Test
+    public void runsWithoutMontoyaApi() throws Exception {
+        // Load the converter from the build output only, the way the shaded jar runs outside Burp
+        URL classes = CurlConverter.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes}, ClassLoader.getPlatformClassLoader())) {
+            assertThrows(ClassNotFoundException.class, () -> loader.loadClass("burp.api.montoya.MontoyaApi"));
+
+            Method run = loader.loadClass("burp.CurlConverter").getDeclaredMethod("run",
+                    String[].class, InputStream.class, OutputStream.class, PrintStream.class);
+            run.setAccessible(true);
+            InputStream in = new ByteArrayInputStream(
+                    "curl https://example.com/x -H 'A: 1' -b c=1 -u user:pass -d x=1\n".getBytes(StandardCharsets.UTF_8));
+            Object status = run.invoke(null, new String[]{"-f", "jsonl"}, in, out, new PrintStream(err, true));
+
+            assertEquals(0, status, err.toString(StandardCharsets.UTF_8));
+            assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"url\":\"https://example.com/x\""));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package burp;
+
+import burp.api.montoya.http.message.HttpHeader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurlExporterTest {
+
+    @Test
+    public void plainRequest() throws IOException {
+        String command = export("GET", "https://example.com/a?b=c",
+                List.of(HttpHeaderImpl.of("Host", "example.com"), HttpHeaderImpl.of("Accept", "it's json")), null);
+
+        assertEquals("curl 'https://example.com/a?b=c' \\\n  -H 'Accept: it'\\''s json'\n", command);
+    }
+
+    @Test
+    public void methodAndBodyFlags() throws IOException {
+        assertEquals("curl 'https://example.com/' \\\n  --data-binary 'a=b'\n",
+                export("POST", "https://example.com/", List.of(HttpHeaderImpl.of("Content-Length", "3")), bytes("a=b")));
+        assertEquals("curl 'https://example.com/' \\\n  -X 'PUT' \\\n  --data-raw '@x'\n",
+                export("PUT", "https://example.com/", List.of(), bytes("@x")));
+        assertEquals("curl 'https://example.com/' \\\n  -X 'HEAD' --head\n",
+                export("HEAD", "https://example.com/", List.of(), new byte[0]));
+    }
+
+    @Test
+    public void binaryBodyUsesAnsiCQuoting() throws IOException {
+        byte[] body = {'a', '\'', '\\', '\n', '\r', '\t', 0, (byte) 0x80, (byte) 0xff, '0'};
+
+        String command = export("POST", "https://example.com/", List.of(HttpHeaderImpl.of("X-Name", "café €")), body);
+
+        assertEquals("curl 'https://example.com/' \\\n"
+                + "  -H $'X-Name: caf\\xe9 \\xe2\\x82\\xac' \\\n"
+                + "  --data-binary $'a\\'\\\\\\n\\r\\t\\x00\\x80\\xff0'\n", command);
+    }
+
+    @Test
+    public void roundTripThroughSplitterAndParser() throws IOException {
+        byte[] binary = new byte[256];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) i;
+        }
+        StringWriter out = new StringWriter();
+        CurlExporter exporter = new CurlExporter(out);
+        exporter.comment("#!/usr/bin/env bash");
+        exporter.write("POST", "https://example.com/upload", List.of(
+                HttpHeaderImpl.of("Content-Type", "application/octet-stream"),
+                HttpHeaderImpl.of("X-Quote", "a'b\"c")), binary);
+        exporter.write("DELETE", "http://example.com:8080/item/1", List.of(HttpHeaderImpl.of("Host", "other.example")), null);
+        exporter.flush();
+        assertEquals(2, exporter.getCount());
+
+        List<String> commands = CurlCommandSplitter.split(out.toString());
+        assertEquals(2, commands.size());
+
+        CurlParser.CurlRequest upload = CurlParser.parseCurlCommand(commands.get(0));
+        assertNotNull(upload);
+        assertEquals("POST", upload.getMethod());
+        assertEquals("application/octet-stream", upload.getHeaders().first("Content-Type"));
+        assertEquals("a'b\"c", upload.getHeaders().first("X-Quote"));
+        assertArrayEquals(binary, upload.getBodyBytes());
+
+        CurlParser.CurlRequest delete = CurlParser.parseCurlCommand(commands.get(1));
+        assertNotNull(delete);
+        assertEquals("DELETE", delete.getMethod());
+        assertEquals("other.example", delete.getHeaders().first("Host"));
+    }
+
+    @Test
+    public void streamsLargeBodiesThroughSmallWrites() throws IOException {
+        byte[] body = new byte[100_000];
+        java.util.Arrays.fill(body, (byte) 0x01);
+        int[] largestWrite = {0};
+        StringBuilder text = new StringBuilder();
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                largestWrite[0] = Math.max(largestWrite[0], length);
+                text.append(chars, offset, length);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        CurlExporter exporter = new CurlExporter(out);
+        exporter.write("POST", "https://example.com/", List.of(), body);
+        exporter.flush();
+
+        assertTrue(largestWrite[0] <= 8192);
+        assertEquals(4 * body.length, text.length() - text.indexOf("$'") - 4);
+    }
+
+    @Test
+    public void authority() {
+        assertEquals("example.com:8443", CurlExporter.authority("https://example.com:8443/a"));
+        assertEquals("example.com", CurlExporter.authority("http://example.com?x"));
+    }
+
+    private static String export(String method, String url, List<HttpHeader> headers, byte[] body) throws IOException {
+        StringWriter out = new StringWriter();
+        CurlExporter exporter = new CurlExporter(out);
+        exporter.write(method, url, headers, body);
+        exporter.flush();
+        return out.toString();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
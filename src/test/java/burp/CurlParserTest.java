@@ -2,7 +2,14 @@ package burp;
 
 import burp.api.montoya.http.message.HttpHeader;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -330,6 +337,28 @@ class CurlParserTest {
         assertEquals("token=$1$abc", request.getHeaders().get(0).value());
     }
 
+    @Test
+    public void parseRepeatedHeadersAreKept() {
+        String curlCommand = "curl https://example.com -H 'Accept: text/html' -H 'accept: application/json'";
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(curlCommand);
+        assertEquals(List.of("text/html", "application/json"), request.getHeaders().values("Accept"));
+    }
+
+    @Test
+    public void parseMultipleCookiesAreJoined() {
+        String curlCommand = "curl https://example.com -b 'a=1' -b 'b=2'";
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(curlCommand);
+        assertEquals(List.of("a=1; b=2"), request.getHeaders().values("Cookie"));
+    }
+
+    @Test
+    public void parseCookieHeaderWinsOverCookieOption() {
+        String curlCommand = "curl https://example.com -H 'Cookie: x=9' -b 'a=1' -u user:pass -H 'Authorization: Bearer t'";
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(curlCommand);
+        assertEquals(List.of("x=9"), request.getHeaders().values("cookie"));
+        assertEquals(List.of("Bearer t"), request.getHeaders().values("authorization"));
+    }
+
     @Test
     public void parseCookieLongForm() {
         CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
@@ -434,8 +463,302 @@ class CurlParserTest {
         assertEquals("{\"a\":\"b\"}", request.getBody());
     }
 
+    @Test
+    public void parseAttachedShortOptionValue() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl -sSXPATCH 'https://example.com/a' -d'x=1'");
+
+        assertNotNull(request);
+        assertEquals("PATCH", request.getMethod());
+        assertEquals("x=1", request.getBody());
+    }
+
+    @Test
+    public void parseLongOptionWithEquals() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl --url=https://example.com/a --data=x=1 --header='X-Test: yes'");
+
+        assertNotNull(request);
+        assertEquals("/a", request.getPath());
+        assertEquals("x=1", request.getBody());
+        assertEquals("X-Test", request.getHeaders().get(0).name());
+    }
+
+    @Test
+    public void parseAdjacentQuotedSegments() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl 'https://example.com/a' -H 'X-Test: '\\''quoted'\\'' '\"\\\"value\\\"\"");
+
+        assertNotNull(request);
+        assertEquals("'quoted' \"value\"", request.getHeaders().get(0).value());
+    }
+
+    @Test
+    public void parseIgnoresUrlsInsideData() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl https://api.example.com/real --data-binary 'next=https://evil.example/x' -x http://proxy.example:8080");
+
+        assertNotNull(request);
+        assertEquals("api.example.com", request.getHost());
+        assertEquals("next=https://evil.example/x", request.getBody());
+    }
+
+    @Test
+    public void extractFlagValuesSkipsOtherOptions() {
+        List<String> values = CurlParser.extractFlagValues(
+                "curl https://example.com -A 'agent -d no' -d 'a=1' --data-raw b=2", CurlParser.Flag.DATA);
+
+        assertEquals(List.of("a=1", "b=2"), values);
+    }
+
+    @Test
+    public void parseLargeBody() {
+        String payload = "x".repeat(5 * 1024 * 1024);
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl 'https://example.com/upload' --data-raw '" + payload + "'");
+
+        assertNotNull(request);
+        assertEquals(payload.length(), request.getBody().length());
+    }
+
+    @Test
+    public void parseBinaryBodyKeepsBytes() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl 'https://example.com/upload' --data-binary $'\\x00\\xff\\x80a'");
+
+        assertNotNull(request);
+        assertArrayEquals(new byte[]{0x00, (byte) 0xff, (byte) 0x80, 'a'}, request.getBodyBytes());
+    }
+
+    @Test
+    public void parseUtf8BodyBytes() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl 'https://example.com' --data-raw $'caf\\xc3\\xa9' --data-raw 'na\u00efve'");
+
+        assertNotNull(request);
+        assertEquals("café&naïve", request.getBody());
+        assertArrayEquals("café&naïve".getBytes(StandardCharsets.UTF_8), request.getBodyBytes());
+    }
+
+    @Test
+    public void parseAnsiCEscapeSet() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl 'https://example.com' --data-binary $'\\a\\b\\e\\E\\f\\v\\?\\101\\0\\7z\\cA\\c?\\x7\\xg'");
+
+        assertNotNull(request);
+        assertArrayEquals(new byte[]{0x07, 0x08, 0x1b, 0x1b, 0x0c, 0x0b, '?', 'A', 0x00, 0x07, 'z', 0x01, 0x7f,
+                0x07, '\\', 'x', 'g'}, request.getBodyBytes());
+    }
+
+    @Test
+    public void parseAnsiCUnicodeEscapes() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl 'https://example.com' --data-raw $'\\u00e9\\u20ac\\U0001F600\\U41\\q'");
+
+        assertNotNull(request);
+        assertEquals("é€😀A\\q", request.getBody());
+    }
+
+    @Test
+    public void parseDataFileReferences(@TempDir Path dir) throws IOException {
+        Path text = Files.writeString(dir.resolve("form.txt"), "a=1\r\n&b=2\n");
+        Path binary = Files.write(dir.resolve("payload.bin"), new byte[]{0x00, '\n', (byte) 0xff});
+
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl https://example.com/a -d @" + text + " --data-binary @" + binary + " --data-raw @literal");
+
+        assertNotNull(request);
+        assertEquals("POST", request.getMethod());
+        assertArrayEquals(new byte[]{'a', '=', '1', '&', 'b', '=', '2', '&', 0x00, '\n', (byte) 0xff,
+                '&', '@', 'l', 'i', 't', 'e', 'r', 'a', 'l'}, request.getBodyBytes());
+    }
+
+    @Test
+    public void parseUploadFile(@TempDir Path dir) throws IOException {
+        byte[] content = new byte[3 * 1024 * 1024];
+        content[content.length - 1] = 42;
+        Path upload = Files.write(dir.resolve("upload.bin"), content);
+
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl -T '" + upload + "' https://example.com/files/upload.bin");
+
+        assertNotNull(request);
+        assertEquals("PUT", request.getMethod());
+        assertArrayEquals(content, request.getBodyBytes());
+    }
+
+    @Test
+    public void parseDataFileOverLimit(@TempDir Path dir) throws IOException {
+        Path large = Files.write(dir.resolve("large.bin"), new byte[2048]);
+        long previous = FileReferences.getMaxFileBytes();
+        FileReferences.setMaxFileBytes(1024);
+        try {
+            assertNull(CurlParser.parseCurlCommand("curl https://example.com --data-binary @" + large));
+            assertNull(CurlParser.parseCurlCommand("curl https://example.com --data-binary @" + dir.resolve("missing")));
+        } finally {
+            FileReferences.setMaxFileBytes(previous);
+        }
+    }
+
+    @Test
+    public void parseCookieFile(@TempDir Path dir) throws IOException {
+        Path jar = Files.writeString(dir.resolve("cookies.txt"),
+                "# Netscape HTTP Cookie File\n" +
+                ".example.com\tTRUE\t/\tFALSE\t0\tsession\tabc\n" +
+                "#HttpOnly_api.example.com\tFALSE\t/\tTRUE\t0\ttoken\txyz\n" +
+                "other.org\tFALSE\t/\tFALSE\t0\tforeign\tno\n");
+
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl https://api.example.com/me -b @" + jar);
+
+        assertNotNull(request);
+        assertEquals("Cookie", request.getHeaders().get(0).name());
+        assertEquals("session=abc; token=xyz", request.getHeaders().get(0).value());
+
+        request = CurlParser.parseCurlCommand("curl https://api.example.com/me -b " + dir.resolve("missing.txt"));
+        assertNotNull(request);
+        assertTrue(request.getHeaders().isEmpty());
+    }
+
     @Test
     public void parseGarbageReturnsNull() {
         assertNull(CurlParser.parseCurlCommand("not a curl command at all"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parseFromReaderMatchesString() {
+        String curlCommand = "curl 'https://example.com/api?x=1' \\\n  -H 'Accept: */*' \\\n  --data-raw $'a\\nb'";
+        CurlParser.CurlRequest fromString = CurlParser.parseCurlCommand(curlCommand);
+        CurlParser.CurlRequest fromReader = CurlParser.parseCurlCommand(new StringReader(curlCommand), null);
+
+        assertNotNull(fromReader);
+        assertEquals(fromString.getBaseUrl(), fromReader.getBaseUrl());
+        assertEquals(fromString.getMethod(), fromReader.getMethod());
+        assertEquals(fromString.getHeaders().toString(), fromReader.getHeaders().toString());
+        assertEquals("a\nb", fromReader.getBody());
+    }
+
+    @Test
+    public void parseLargeBodyAcrossReadWindows() {
+        String data = "x".repeat(300_000) + "'\\''" + "y".repeat(300_000);
+        String curlCommand = "curl https://example.com/upload -H 'Content-Type: text/plain' --data-binary '" + data + "'";
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(new StringReader(curlCommand), null);
+
+        assertNotNull(request);
+        assertEquals(600_001, request.getBodyBytes().length);
+        assertEquals('\'', request.getBodyBytes()[300_000]);
+        assertEquals("text/plain", request.getHeaders().first("Content-Type"));
+    }
+
+    @Test
+    public void lexerSpillsLargeWords() {
+        String data = "\u00e9".repeat(100_000);
+        try (CurlLexer lexer = new CurlLexer(new StringReader("--data-binary \"" + data + "\" https://example.com"), 1024)) {
+            assertEquals("--data-binary", lexer.next().value());
+
+            CurlLexer.Token spilled = lexer.next();
+            assertEquals(200_000, spilled.length());
+            assertEquals(data, spilled.value());
+            assertEquals(data.substring(3), spilled.suffix(6).value());
+
+            assertEquals("https://example.com", lexer.next().value());
+            assertNull(lexer.next());
+        }
+    }
+
+    @Test
+    public void lexerKeepsAttachedOptionValuesSpilled() {
+        String data = "a=".repeat(50_000);
+        try (CurlLexer lexer = new CurlLexer(new StringReader("--data-raw=" + data + " -d" + data), 1024)) {
+            CurlLexer.Token longOption = lexer.next();
+            assertEquals(11 + 100_000, longOption.length());
+            assertEquals(64, longOption.headLength());
+            assertEquals(10, longOption.indexOf((byte) '='));
+            assertEquals("--data-raw", longOption.text(0, 10));
+
+            CurlLexer.Token value = longOption.suffix(11);
+            assertEquals(100_000, value.length());
+            assertEquals(64, value.headLength());
+            assertEquals(data, value.value());
+
+            CurlLexer.Token shortOption = lexer.next();
+            assertEquals(data, shortOption.suffix(2).value());
+        }
+    }
+
+    @Test
+    public void parseMultipartForm(@TempDir Path dir) throws IOException {
+        Path avatar = Files.write(dir.resolve("avatar.png"), new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+        Path note = Files.writeString(dir.resolve("note.txt"), "from file");
+
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand("curl https://example.com/upload"
+                + " -F 'user=alice' -F 'avatar=@" + avatar + "' -F 'note=<" + note + ";type=text/plain'"
+                + " -F 'doc=@" + note + ";filename=\"x y.txt\";type=application/x-test'"
+                + " --form-string 'raw=@not-a-file;type=x'");
+
+        assertNotNull(request);
+        assertEquals("POST", request.getMethod());
+        assertTrue(request.readsFiles());
+
+        String contentType = request.getHeaders().first("Content-Type");
+        assertTrue(contentType.startsWith("multipart/form-data; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        String expected = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"user\"\r\n\r\nalice\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"avatar\"; filename=\"avatar.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n\u0089PNG\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"note\"\r\n"
+                + "Content-Type: text/plain\r\n\r\nfrom file\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"doc\"; filename=\"x y.txt\"\r\n"
+                + "Content-Type: application/x-test\r\n\r\nfrom file\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"raw\"\r\n\r\n@not-a-file;type=x\r\n"
+                + "--" + boundary + "--\r\n";
+        assertEquals(expected, new String(request.getBodyBytes(), StandardCharsets.ISO_8859_1));
+        assertEquals(expected.length(), request.getBodyLength());
+    }
+
+    @Test
+    public void parseMultipartKeepsQuotedValueAndCustomContentType() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand("curl https://example.com/ -X PUT"
+                + " -H 'Content-Type: multipart/mixed' -F 'a=\"x;y\"' -F 'b=c;d'");
+
+        assertNotNull(request);
+        assertEquals("PUT", request.getMethod());
+        String contentType = request.getHeaders().first("content-type");
+        assertTrue(contentType.startsWith("multipart/mixed; boundary="));
+        String body = request.getBody();
+        assertTrue(body.contains("name=\"a\"\r\n\r\nx;y\r\n"));
+        assertTrue(body.contains("name=\"b\"\r\n\r\nc;d\r\n"));
+    }
+
+    @Test
+    public void parseMultipartWithDataIsRejected() {
+        assertNull(CurlParser.parseCurlCommand("curl https://example.com/ -F a=b -d c=d"));
+        assertNull(CurlParser.parseCurlCommand("curl https://example.com/ -F novalue"));
+    }
+
+    @Test
+    public void parseTimeouts() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(
+                "curl https://example.com/ -m 2.5 --connect-timeout 1 --max-time 3");
+
+        assertNotNull(request);
+        assertEquals(Duration.ofSeconds(3), request.getMaxTime());
+        assertEquals(Duration.ofSeconds(1), request.getConnectTimeout());
+
+        request = CurlParser.parseCurlCommand("curl https://example.com/ --max-time=0.25 --connect-timeout nope");
+        assertNotNull(request);
+        assertEquals(Duration.ofMillis(250), request.getMaxTime());
+        assertNull(request.getConnectTimeout());
+
+        request = CurlParser.parseCurlCommand("curl https://example.com/");
+        assertNotNull(request);
+        assertNull(request.getMaxTime());
+        assertNull(request.getConnectTimeout());
+    }
+}
@@ -0,0 +1,82 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HarReaderTest {
+
+    private static final String HAR = "{\n" +
+            "  \"log\": {\n" +
+            "    \"version\": \"1.2\",\n" +
+            "    \"creator\": {\"name\": \"WebInspector\", \"version\": \"537.36\"},\n" +
+            "    \"pages\": [],\n" +
+            "    \"entries\": [\n" +
+            "      {\n" +
+            "        \"startedDateTime\": \"2024-01-01T00:00:00.000Z\",\n" +
+            "        \"time\": 12.5,\n" +
+            "        \"request\": {\n" +
+            "          \"method\": \"POST\",\n" +
+            "          \"url\": \"https://api.example.com/v1/items?page=2\",\n" +
+            "          \"httpVersion\": \"HTTP/2\",\n" +
+            "          \"headers\": [\n" +
+            "            {\"name\": \":authority\", \"value\": \"api.example.com\"},\n" +
+            "            {\"name\": \"content-type\", \"value\": \"application/json\"},\n" +
+            "            {\"name\": \"content-length\", \"value\": \"17\"}\n" +
+            "          ],\n" +
+            "          \"queryString\": [{\"name\": \"page\", \"value\": \"2\"}],\n" +
+            "          \"cookies\": [],\n" +
+            "          \"headersSize\": -1,\n" +
+            "          \"bodySize\": 17,\n" +
+            "          \"postData\": {\"mimeType\": \"application/json\", \"text\": \"{\\\"name\\\":\\\"caf\\u00e9\\\"}\"}\n" +
+            "        },\n" +
+            "        \"response\": {\n" +
+            "          \"status\": 200,\n" +
+            "          \"content\": {\"size\": 3, \"mimeType\": \"text/plain\", \"text\": \"%s\"}\n" +
+            "        },\n" +
+            "        \"cache\": {},\n" +
+            "        \"timings\": {\"send\": 0.1, \"wait\": 10, \"receive\": 2.4}\n" +
+            "      },\n" +
+            "      {\"request\": {\"method\": \"GET\", \"url\": \"http://localhost:8080/health\", \"headers\": []}},\n" +
+            "      {\"request\": {\"method\": \"GET\", \"url\": \"wss://example.com/socket\", \"headers\": []}}\n" +
+            "    ]\n" +
+            "  }\n" +
+            "}";
+
+    @Test
+    public void readEntries() throws IOException {
+        String har = String.format(HAR, "x\\\"y[{".repeat(100_000));
+        List<CurlParser.CurlRequest> requests = new ArrayList<>();
+
+        HarReader harReader = new HarReader();
+        harReader.read(new StringReader(har), requests::add);
+
+        assertEquals(2, harReader.getImported());
+        assertEquals(1, harReader.getSkipped());
+
+        CurlParser.CurlRequest post = requests.get(0);
+        assertEquals("POST", post.getMethod());
+        assertEquals("api.example.com", post.getHost());
+        assertEquals("/v1/items", post.getPath());
+        assertEquals("page=2", post.getQuery());
+        assertEquals("{\"name\":\"café\"}", post.getBody());
+        assertEquals(1, post.getHeaders().size());
+        assertEquals("content-type", post.getHeaders().get(0).name());
+
+        CurlParser.CurlRequest get = requests.get(1);
+        assertEquals("GET", get.getMethod());
+        assertEquals("http://localhost:8080/health", get.getBaseUrl());
+        assertEquals("", get.getBody());
+    }
+
+    @Test
+    public void readMalformed() {
+        assertThrows(IOException.class,
+                () -> new HarReader().read(new StringReader("{\"log\": {\"entries\": [{\"request\": "), r -> { }));
+    }
+}
@@ -0,0 +1,94 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderListTest {
+
+    @Test
+    public void keepsInsertionOrderAndDuplicates() {
+        HeaderList headers = new HeaderList();
+        headers.add("Accept", "text/html");
+        headers.add("X-Trace", "1");
+        headers.add("accept", "application/json");
+
+        assertEquals(3, headers.size());
+        assertEquals("Accept", headers.get(0).name());
+        assertEquals("X-Trace", headers.get(1).name());
+        assertEquals("accept", headers.get(2).name());
+        assertEquals(List.of("text/html", "application/json"), headers.values("ACCEPT"));
+        assertTrue(headers.isFirstOccurrence(0));
+        assertFalse(headers.isFirstOccurrence(2));
+    }
+
+    @Test
+    public void lookupIgnoresCase() {
+        HeaderList headers = new HeaderList();
+        headers.add("Content-Type", "application/json");
+
+        assertTrue(headers.contains("content-type"));
+        assertEquals("application/json", headers.first("CONTENT-TYPE"));
+        assertNull(headers.first("Content-Length"));
+        assertFalse(headers.addIfAbsent("content-type", "text/plain"));
+        assertEquals(1, headers.size());
+    }
+
+    @Test
+    public void setReplacesAllOccurrencesAtFirstPosition() {
+        HeaderList headers = new HeaderList();
+        headers.add("A", "1");
+        headers.add("B", "2");
+        headers.add("a", "3");
+        headers.add("C", "4");
+
+        headers.set("A", "5");
+
+        assertEquals(3, headers.size());
+        assertEquals("A: 5", headers.get(0).toString());
+        assertEquals("B: 2", headers.get(1).toString());
+        assertEquals("C: 4", headers.get(2).toString());
+        assertEquals(List.of("5"), headers.values("a"));
+        headers.add("a", "6");
+        assertEquals(List.of("5", "6"), headers.values("A"));
+    }
+
+    @Test
+    public void removeAllDropsEveryOccurrence() {
+        HeaderList headers = new HeaderList();
+        headers.add("Cookie", "a=1");
+        headers.add("Host", "example.com");
+        headers.add("cookie", "b=2");
+
+        assertEquals(2, headers.removeAll("COOKIE"));
+        assertEquals(1, headers.size());
+        assertFalse(headers.contains("Cookie"));
+        assertEquals("example.com", headers.first("host"));
+    }
+
+    @Test
+    public void addLineFollowsCurlSyntax() {
+        HeaderList headers = new HeaderList();
+        assertTrue(headers.addLine("X-Token:  abc "));
+        assertTrue(headers.addLine("X-Empty;"));
+        assertFalse(headers.addLine("no separator"));
+        assertFalse(headers.addLine(": value"));
+
+        assertEquals(2, headers.size());
+        assertEquals("abc", headers.first("x-token"));
+        assertEquals("", headers.first("x-empty"));
+    }
+
+    @Test
+    public void manyHeadersStayIndexed() {
+        HeaderList headers = new HeaderList();
+        for (int i = 0; i < 10_000; i++) {
+            headers.add("X-Header-" + (i % 500), Integer.toString(i));
+        }
+        assertEquals(10_000, headers.size());
+        assertEquals(20, headers.values("x-header-42").size());
+        assertEquals("42", headers.first("X-HEADER-42"));
+    }
+}
@@ -0,0 +1,58 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (long value = 0; value < 100_000; value++) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(Histogram.bucketLowerBound(index) <= value);
+            assertTrue(Histogram.bucketLowerBound(index + 1) > value);
+        }
+        assertTrue(Histogram.bucketIndex(Long.MAX_VALUE) > Histogram.bucketIndex(1L << 40));
+    }
+
+    @Test
+    public void percentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_000, histogram.percentile(50), 500_000 * 0.125);
+        assertEquals(990_000, histogram.percentile(99), 990_000 * 0.125);
+        assertEquals(500_500, histogram.mean(), 0.001);
+    }
+
+    @Test
+    public void countBetweenDoesNotDoubleCount() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 200_000; value += 7) {
+            histogram.record(value);
+        }
+
+        long[] bounds = {0, 1024, 10 * 1024, 100 * 1024, Long.MAX_VALUE};
+        long total = 0;
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            total += histogram.countBetween(bounds[i], bounds[i + 1]);
+        }
+        assertEquals(histogram.count(), total);
+    }
+
+    @Test
+    public void emptyAndReset() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(99));
+
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+    }
+}
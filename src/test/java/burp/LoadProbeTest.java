@@ -0,0 +1,199 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadProbeTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void countsStatusesWithinConcurrency() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger lastCompleted = new AtomicInteger();
+        // The first requests wait until every worker is sending, so the limit is reached
+        CountDownLatch allBusy = new CountDownLatch(5);
+
+        LoadProbe.Report report = new LoadProbe(50, 5, 0, null, null).run(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            allBusy.countDown();
+            assertTrue(allBusy.await(10, TimeUnit.SECONDS), "workers were not all busy");
+            inFlight.decrementAndGet();
+            return calls.incrementAndGet() % 5 == 0 ? 503 : 200;
+        }, done -> lastCompleted.accumulateAndGet(done, Math::max));
+
+        assertEquals(50, calls.get());
+        assertEquals(50, lastCompleted.get());
+        assertEquals(5, maxInFlight.get());
+        assertEquals(50, report.sent.sum());
+        assertEquals(50, report.latency.count());
+        assertEquals(Map.of(200, 40L, 503, 10L), report.statuses());
+        assertEquals(0, report.errorCount());
+        assertTrue(report.describe().contains("Status:    200 x 40 503 x 10"));
+    }
+
+    @Test
+    public void ratePacesRequestsAndChargesQueueingDelay() throws InterruptedException {
+        FakeClock clock = new FakeClock();
+        LoadProbe.Report report = new LoadProbe(20, 1, 100, null, null, clock).run(() -> {
+            clock.advance(50 * MS);
+            return 200;
+        }, done -> { });
+
+        // 20 requests due 10 ms apart through one 50 ms slot: each waits behind the previous ones, and
+        // the last one, due at 190 ms, only finishes at 1000 ms
+        assertEquals(1000 * MS, report.elapsedNanos);
+        assertEquals(810 * MS, report.latency.max(), (double) MS);
+
+        report = new LoadProbe(11, 4, 200, null, null, new FakeClock()).run(() -> 200, done -> { });
+        assertEquals(50 * MS, report.elapsedNanos);
+        assertEquals(11, report.latency.count());
+    }
+
+    @Test
+    public void maxTimeAndErrors() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        // Never released: these sends only end when the timeout interrupts them
+        CountDownLatch noResponse = new CountDownLatch(1);
+        LoadProbe.Report report = new LoadProbe(6, 3, 0, Duration.ofMillis(50), null).run(() -> {
+            switch (calls.incrementAndGet() % 3) {
+                case 0:
+                    noResponse.await();
+                    return 200;
+                case 1:
+                    throw new IOException("No response");
+                default:
+                    return 204;
+            }
+        }, done -> { });
+
+        assertEquals(6, report.sent.sum());
+        assertEquals(Map.of(204, 2L), report.statuses());
+        assertEquals(Map.of("No response", 2L, "Timed out after 50 ms (--max-time)", 2L), report.errors());
+        assertTrue(report.describe().contains("Error:     No response x 2"));
+    }
+
+    @Test
+    public void timedOutSendsKeepTheirSlotUntilTheyReturn() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstTimedOut = new CountDownLatch(2);
+
+        LoadProbe probe = new LoadProbe(6, 2, 0, Duration.ofMillis(20), null);
+        AtomicLong timeouts = new AtomicLong();
+        Thread runner = new Thread(() -> {
+            try {
+                LoadProbe.Report report = probe.run(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    // Like Burp's blocking send: ignores interrupts until the response arrives
+                    boolean interrupted = false;
+                    while (true) {
+                        try {
+                            release.await();
+                            break;
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    inFlight.decrementAndGet();
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 200;
+                }, done -> {
+                    completed.set(done);
+                    firstTimedOut.countDown();
+                });
+                timeouts.set(report.errorCount());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        runner.start();
+
+        assertTrue(firstTimedOut.await(10, TimeUnit.SECONDS));
+        // Both workers have given up on their sends; they must now wait for a slot, not send more
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (maxInFlight.get() <= 2 && waitingWorkers() < 2 && System.nanoTime() - deadline < 0) {
+            Thread.onSpinWait();
+        }
+        assertEquals(2, maxInFlight.get());
+        release.countDown();
+        runner.join(10_000);
+
+        assertFalse(runner.isAlive());
+        assertEquals(6, completed.get());
+        assertEquals(2, maxInFlight.get());
+        assertTrue(timeouts.get() >= 2);
+    }
+
+    @Test
+    public void slowFailuresKeepTheirMessageAndConnectTimeoutIsNotedAsIgnored() throws InterruptedException {
+        FakeClock clock = new FakeClock();
+        LoadProbe.Report report = new LoadProbe(2, 1, 0, null, Duration.ofMillis(20), clock).run(() -> {
+            clock.advance(30 * MS);
+            throw new IOException("Connection reset");
+        }, done -> { });
+
+        assertEquals(Map.of("Connection reset", 2L), report.errors());
+        assertEquals(0, report.latency.count());
+        assertTrue(report.describe().contains("--connect-timeout is not enforced"));
+
+        report = new LoadProbe(1, 1, 0, null, null, new FakeClock()).run(() -> 200, done -> { });
+        assertFalse(report.describe().contains("--connect-timeout"));
+    }
+
+    @Test
+    public void invalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new LoadProbe(0, 1, 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> new LoadProbe(1, 0, 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> new LoadProbe(1, 1, -1, null, null));
+    }
+
+    /**
+     * Number of load probe worker threads parked without a timeout, i.e. waiting for a slot.
+     */
+    private static int waitingWorkers() {
+        int waiting = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("Paste cURL load probe") && thread.getState() == Thread.State.WAITING) {
+                waiting++;
+            }
+        }
+        return waiting;
+    }
+
+    /**
+     * Time that only moves when a send advances it or a worker sleeps until a later deadline.
+     */
+    private static final class FakeClock implements LoadProbe.Clock {
+        private final AtomicLong now = new AtomicLong();
+
+        void advance(long nanos) {
+            now.addAndGet(nanos);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now.get();
+        }
+
+        @Override
+        public void sleepUntil(long deadline) {
+            now.accumulateAndGet(deadline, Math::max);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package burp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTest {
+
+    private final Log.Level originalLevel = Log.getLevel();
+
+    @AfterEach
+    public void restoreLevel() {
+        Log.setLevel(originalLevel);
+    }
+
+    @Test
+    public void summarizeCollapsesWhitespace() {
+        assertEquals("curl -H 'A: b' https://example.com",
+                Log.summarize("  curl\n  -H 'A: b'\t\thttps://example.com\n", 120));
+    }
+
+    @Test
+    public void summarizeTruncatesLongInput() {
+        String summary = Log.summarize("curl " + "x".repeat(10_000), 20);
+        assertEquals(20, summary.length());
+        assertTrue(summary.endsWith("..."));
+    }
+
+    @Test
+    public void summarizeOnlyLooksAtBoundedPrefix() {
+        // Whitespace-only text is scanned up to the prefix limit, not to the end
+        String summary = Log.summarize(" ".repeat(1_000_000) + "curl", 10);
+        assertEquals("...", summary);
+    }
+
+    @Test
+    public void disabledMessagesAreNotFormatted() {
+        Log.setLevel(Log.Level.INFO);
+        AtomicBoolean formatted = new AtomicBoolean();
+        Log.debug(() -> {
+            formatted.set(true);
+            return "expensive";
+        });
+        assertFalse(formatted.get());
+    }
+
+    @Test
+    public void recentKeepsEmittedMessages() {
+        Log.setLevel(Log.Level.WARN);
+        Log.warn(() -> "recent-log-test warning");
+        Log.info(() -> "recent-log-test info");
+
+        List<String> recent = Log.recent();
+        assertTrue(recent.get(recent.size() - 1).endsWith("WARN recent-log-test warning"));
+        assertTrue(recent.stream().noneMatch(line -> line.contains("recent-log-test info")));
+    }
+
+    @Test
+    public void parseLevelFallsBack() {
+        assertEquals(Log.Level.DEBUG, Log.parseLevel(" debug ", Log.Level.INFO));
+        assertEquals(Log.Level.INFO, Log.parseLevel("verbose", Log.Level.INFO));
+        assertEquals(Log.Level.INFO, Log.parseLevel(null, Log.Level.INFO));
+    }
+}
@@ -0,0 +1,63 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    @Test
+    public void hitAndMiss() {
+        ParseCache<String> cache = new ParseCache<>(100);
+        ParseCache.Key key = ParseCache.Key.of("curl https://example.com");
+
+        assertNull(cache.get(key));
+        cache.put(key, "request", 10);
+        assertEquals("request", cache.get(ParseCache.Key.of(new StringBuilder("curl https://example.com"))));
+        assertNull(cache.get(ParseCache.Key.of("curl https://example.org")));
+
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void keyBuiltInChunksMatchesKeyOfWholeText() {
+        String text = "curl https://example.com -d '" + "x".repeat(10_000) + "'";
+        char[] chars = text.toCharArray();
+        ParseCache.Key.Builder builder = new ParseCache.Key.Builder();
+        for (int offset = 0; offset < chars.length; offset += 4096) {
+            builder.append(chars, offset, Math.min(4096, chars.length - offset));
+        }
+
+        assertEquals(ParseCache.Key.of(text), builder.build());
+        assertNotEquals(ParseCache.Key.of(text), new ParseCache.Key.Builder().append(chars, 0, chars.length - 1).build());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByWeight() {
+        ParseCache<String> cache = new ParseCache<>(100);
+        ParseCache.Key a = ParseCache.Key.of("a");
+        ParseCache.Key b = ParseCache.Key.of("b");
+        ParseCache.Key c = ParseCache.Key.of("c");
+
+        cache.put(a, "a", 40);
+        cache.put(b, "b", 40);
+        cache.get(a);
+        cache.put(c, "c", 40);
+
+        assertEquals("a", cache.get(a));
+        assertNull(cache.get(b));
+        assertEquals("c", cache.get(c));
+        assertEquals(80, cache.weight());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void skipsEntriesOverBudget() {
+        ParseCache<String> cache = new ParseCache<>(100);
+        cache.put(ParseCache.Key.of("big"), "big", 101);
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+}
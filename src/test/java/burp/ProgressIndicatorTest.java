@@ -0,0 +1,63 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressIndicatorTest {
+
+    @Test
+    public void updateKeepsLatestProgress() {
+        ProgressIndicator progress = new ProgressIndicator(null, "Paste cURL");
+        assertEquals("Working...", progress.status());
+        assertEquals(-1, progress.total());
+
+        progress.update("Parsing...");
+        assertEquals("Parsing...", progress.status());
+        assertEquals(-1, progress.total());
+
+        progress.update("Sent 3 of 10", 3, 10);
+        assertEquals("Sent 3 of 10", progress.status());
+        assertEquals(3, progress.done());
+        assertEquals(10, progress.total());
+
+        progress.update("Sent 12 of 10", 12, 10);
+        assertEquals(10, progress.done());
+    }
+
+    @Test
+    public void cancelRunsActionOnce() {
+        ProgressIndicator progress = new ProgressIndicator(null, "Paste cURL");
+        AtomicInteger cancels = new AtomicInteger();
+        progress.setCancelAction(cancels::incrementAndGet);
+
+        progress.cancel();
+        progress.cancel();
+
+        assertTrue(progress.isCancelled());
+        assertEquals(1, cancels.get());
+        assertEquals("Cancelling...", progress.status());
+
+        progress.update("Sent 5 of 10", 5, 10);
+        assertEquals("Cancelling...", progress.status());
+    }
+
+    @Test
+    public void closedIgnoresUpdatesAndCancel() {
+        ProgressIndicator progress = new ProgressIndicator(null, "Paste cURL");
+        AtomicInteger cancels = new AtomicInteger();
+        progress.setCancelAction(cancels::incrementAndGet);
+
+        progress.update("Done", 1, 1);
+        progress.close();
+        progress.update("Late", 0, 5);
+        progress.cancel();
+
+        assertTrue(progress.isClosed());
+        assertFalse(progress.isCancelled());
+        assertEquals(0, cancels.get());
+        assertEquals("Done", progress.status());
+    }
+}
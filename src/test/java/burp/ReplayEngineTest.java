@@ -0,0 +1,141 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayEngineTest {
+
+    @Test
+    public void concurrencyAndPerHostLimits() throws InterruptedException {
+        List<String> hosts = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            hosts.add(i % 4 == 0 ? "b.example.com" : "a.example.com");
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ConcurrentHashMap<String, AtomicInteger> perHost = new ConcurrentHashMap<>();
+        AtomicInteger maxPerHost = new AtomicInteger();
+        List<ReplayEngine.Result> results = Collections.synchronizedList(new ArrayList<>());
+        // The first requests wait until the engine has filled every slot, so the limits are reached
+        CountDownLatch allSlotsBusy = new CountDownLatch(4);
+
+        new ReplayEngine(4, 2, 0).run(hosts, host -> host, host -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            AtomicInteger hostCount = perHost.computeIfAbsent(host, h -> new AtomicInteger());
+            maxPerHost.accumulateAndGet(hostCount.incrementAndGet(), Math::max);
+            allSlotsBusy.countDown();
+            assertTrue(allSlotsBusy.await(10, TimeUnit.SECONDS), "slots were not all filled");
+            hostCount.decrementAndGet();
+            inFlight.decrementAndGet();
+            return new ReplayEngine.Outcome(200, host.length());
+        }, results::add);
+
+        assertEquals(40, results.size());
+        assertEquals(4, maxInFlight.get());
+        assertEquals(2, maxPerHost.get());
+        for (ReplayEngine.Result result : results) {
+            assertEquals(200, result.status);
+            assertEquals(hosts.get(result.index).length(), result.size);
+            assertNull(result.error);
+        }
+    }
+
+    @Test
+    public void hostsTakeTurns() throws InterruptedException {
+        List<String> hosts = List.of("a", "a", "a", "a", "b", "b", "c");
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        new ReplayEngine(1, 1, 0).run(hosts, host -> host, host -> {
+            order.add(host);
+            return new ReplayEngine.Outcome(204, 0);
+        }, result -> { });
+
+        assertEquals(List.of("a", "b", "c", "a", "b", "a", "a"), order);
+    }
+
+    @Test
+    public void pacingSpacesRequestsToTheSameHost() throws InterruptedException {
+        List<Long> starts = Collections.synchronizedList(new ArrayList<>());
+        // A clock that moves 10 ms per reading, so the schedule does not depend on real time
+        AtomicLong now = new AtomicLong();
+        long step = TimeUnit.MILLISECONDS.toNanos(10);
+
+        new ReplayEngine(4, 4, 30, () -> now.addAndGet(step)).run(List.of("a", "a", "a", "a", "b"), host -> host,
+                host -> new ReplayEngine.Outcome(200, 0), result -> {
+                    if (result.index < 4) {
+                        starts.add(result.startNanos);
+                    }
+                });
+
+        Collections.sort(starts);
+        assertEquals(4, starts.size());
+        for (int i = 1; i < starts.size(); i++) {
+            assertTrue(starts.get(i) - starts.get(i - 1) >= TimeUnit.MILLISECONDS.toNanos(30),
+                    "requests started too close together");
+        }
+    }
+
+    @Test
+    public void errorsAreReportedPerRequest() throws InterruptedException {
+        List<ReplayEngine.Result> results = Collections.synchronizedList(new ArrayList<>());
+
+        new ReplayEngine(2, 2, 0).run(List.of("ok", "fail"), host -> host, host -> {
+            if (host.equals("fail")) {
+                throw new IOException("Connection refused");
+            }
+            return new ReplayEngine.Outcome(200, 10);
+        }, results::add);
+
+        results.sort((a, b) -> Integer.compare(a.index, b.index));
+        assertNull(results.get(0).error);
+        assertEquals("Connection refused", results.get(1).error);
+        assertEquals(0, results.get(1).status);
+    }
+
+    @Test
+    public void cancelStopsStartingRequests() throws InterruptedException {
+        List<String> hosts = Collections.nCopies(100, "a");
+        ReplayEngine engine = new ReplayEngine(2, 2, 0);
+        AtomicInteger sent = new AtomicInteger();
+
+        engine.run(hosts, host -> host, host -> {
+            if (sent.incrementAndGet() == 5) {
+                engine.cancel();
+            }
+            return new ReplayEngine.Outcome(200, 0);
+        }, result -> { });
+
+        assertTrue(sent.get() < 10, "sent " + sent.get());
+    }
+
+    @Test
+    public void cancelBeforeRunSendsNothing() throws InterruptedException {
+        ReplayEngine engine = new ReplayEngine(2, 2, 0);
+        AtomicInteger sent = new AtomicInteger();
+
+        engine.cancel();
+        engine.run(List.of("a", "b"), host -> host, host -> {
+            sent.incrementAndGet();
+            return new ReplayEngine.Outcome(200, 0);
+        }, result -> { });
+
+        assertEquals(0, sent.get());
+    }
+
+    @Test
+    public void invalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplayEngine(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ReplayEngine(1, 1, -1));
+    }
+}
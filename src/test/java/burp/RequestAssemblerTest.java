@@ -0,0 +1,66 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestAssemblerTest {
+
+    private static String assemble(String curlCommand) {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(curlCommand);
+        return new String(RequestAssembler.toBytes(request), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writesRequestLineHostAndHeaders() {
+        String raw = assemble("curl 'https://example.com/api/v1?x=1&y=2' -H 'Accept: */*' -H 'X-Test: a'");
+        assertEquals("GET /api/v1?x=1&y=2 HTTP/1.1\r\n"
+                + "Host: example.com\r\n"
+                + "Accept: */*\r\n"
+                + "X-Test: a\r\n"
+                + "\r\n", raw);
+    }
+
+    @Test
+    public void writesBodyWithContentLength() {
+        String raw = assemble("curl https://example.com/submit -d 'a=1' -H 'Content-Type: text/plain'");
+        assertEquals("POST /submit HTTP/1.1\r\n"
+                + "Host: example.com\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Length: 3\r\n"
+                + "\r\n"
+                + "a=1", raw);
+    }
+
+    @Test
+    public void keepsExplicitHostAndDuplicates() {
+        String raw = assemble("curl http://127.0.0.1:8080/ -H 'Host: internal' -H 'X-A: 1' -H 'x-a: 2'");
+        assertEquals("GET / HTTP/1.1\r\n"
+                + "Host: internal\r\n"
+                + "X-A: 1\r\n"
+                + "x-a: 2\r\n"
+                + "\r\n", raw);
+    }
+
+    @Test
+    public void includesNonDefaultPortInHost() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand("curl http://example.com:8080/");
+        assertTrue(new String(RequestAssembler.toBytes(request), StandardCharsets.UTF_8).contains("Host: example.com:8080\r\n"));
+        assertEquals(8080, RequestAssembler.port(request));
+        assertFalse(RequestAssembler.isSecure(request));
+
+        CurlParser.CurlRequest secure = CurlParser.parseCurlCommand("curl https://example.com/");
+        assertEquals(443, RequestAssembler.port(secure));
+        assertTrue(RequestAssembler.isSecure(secure));
+    }
+
+    @Test
+    public void copiesBinaryBodyUnchanged() {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand("curl https://example.com/ --data-binary $'\\x00\\xff'");
+        byte[] raw = RequestAssembler.toBytes(request);
+        assertEquals(0x00, raw[raw.length - 2]);
+        assertEquals((byte) 0xff, raw[raw.length - 1]);
+    }
+}
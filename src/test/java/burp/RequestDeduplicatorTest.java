@@ -0,0 +1,97 @@
+package burp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDeduplicatorTest {
+
+    private final RequestDeduplicator deduplicator = new RequestDeduplicator(List.of("Cookie", "X-Request-Id"));
+
+    @Test
+    public void canonicalFormIgnoresOrderCaseAndVolatileHeaders() {
+        assertEquals(
+                fingerprint("curl 'https://Example.com/a?b=2&a=1&a=0' -H 'Accept: */*' -H 'X-Test: 1' -b s=1 -H 'X-Request-Id: 7'"),
+                fingerprint("curl 'https://example.com:443/a?a=1&b=2&a=0' -H 'x-test: 1' -H 'accept: */*' -H 'Cookie: s=2'"));
+        assertEquals(fingerprint("curl -X get https://example.com"), fingerprint("curl https://example.com/"));
+    }
+
+    @Test
+    public void differencesThatMatter() {
+        String base = fingerprint("curl 'https://example.com/a?a=1&a=2' -H 'X-Test: 1' -d x");
+
+        assertNotEquals(base, fingerprint("curl 'https://example.com/a?a=2&a=1' -H 'X-Test: 1' -d x"));
+        assertNotEquals(base, fingerprint("curl 'https://example.com/a?a=1&a=2' -H 'X-Test: 2' -d x"));
+        assertNotEquals(base, fingerprint("curl 'https://example.com/a?a=1&a=2' -H 'X-Test: 1' -d y"));
+        assertNotEquals(base, fingerprint("curl 'http://example.com/a?a=1&a=2' -H 'X-Test: 1' -d x"));
+        assertNotEquals(base, fingerprint("curl 'https://example.com:8443/a?a=1&a=2' -H 'X-Test: 1' -d x"));
+        assertNotEquals(base, fingerprint("curl 'https://example.com/b?a=1&a=2' -H 'X-Test: 1' -d x"));
+        assertNotEquals(base, fingerprint("curl 'https://example.com/a?a=1&a=2' -H 'X-Test: 1' -d x -X PUT"));
+        // Field boundaries: the same bytes split differently between name and value
+        assertNotEquals(fingerprint("curl https://example.com -H 'ab: c'"), fingerprint("curl https://example.com -H 'a: bc'"));
+    }
+
+    @Test
+    public void volatileHeadersCountWhenNotIgnored() {
+        RequestDeduplicator strict = new RequestDeduplicator(List.of());
+        CurlParser.CurlRequest a = CurlParser.parseCurlCommand("curl https://example.com -b s=1");
+        CurlParser.CurlRequest b = CurlParser.parseCurlCommand("curl https://example.com -b s=2");
+
+        assertNotEquals(strict.fingerprint(a), strict.fingerprint(b));
+        assertEquals(deduplicator.fingerprint(a), deduplicator.fingerprint(b));
+    }
+
+    @Test
+    public void cookiesCountByDefault() {
+        RequestDeduplicator defaults = RequestDeduplicator.fromSystemProperties();
+        assertNotNull(defaults);
+
+        assertTrue(defaults.add(CurlParser.parseCurlCommand("curl https://example.com/admin -b session=alice")));
+        assertTrue(defaults.add(CurlParser.parseCurlCommand("curl https://example.com/admin -b session=bob")));
+        assertFalse(defaults.add(CurlParser.parseCurlCommand("curl https://example.com/admin -b session=bob -H 'X-Request-Id: 2'")));
+    }
+
+    @Test
+    public void multipartBoundaryIsIgnored() {
+        String form = "curl https://example.com/upload -F name=alice -F 'note=a;type=text/plain'";
+
+        assertEquals(fingerprint(form), fingerprint(form));
+        assertNotEquals(fingerprint(form), fingerprint("curl https://example.com/upload -F name=bob -F 'note=a;type=text/plain'"));
+        assertEquals(fingerprint("curl https://example.com -H 'Content-Type: multipart/form-data; boundary=aaa' -d $'--aaa\\r\\nx\\r\\n--aaa--'"),
+                fingerprint("curl https://example.com -H 'Content-Type: multipart/form-data; boundary=bbb' -d $'--bbb\\r\\nx\\r\\n--bbb--'"));
+        assertEquals("b c", RequestDeduplicator.multipartBoundary("multipart/form-data; boundary=\"b c\"; charset=utf-8"));
+        assertNull(RequestDeduplicator.multipartBoundary("application/json; boundary=x"));
+    }
+
+    @Test
+    public void addDropsRepeats() {
+        for (int i = 0; i < 10; i++) {
+            CurlParser.CurlRequest poll = CurlParser.parseCurlCommand("curl 'https://example.com/poll?t=1' -H 'X-Request-Id: " + i + "'");
+            assertEquals(i == 0, deduplicator.add(poll));
+        }
+        assertTrue(deduplicator.add(CurlParser.parseCurlCommand("curl https://example.com/other")));
+
+        assertEquals(9, deduplicator.getDuplicates());
+        assertEquals(2, deduplicator.getUnique());
+    }
+
+    @Test
+    public void hasherMatchesMurmur3() {
+        RequestDeduplicator.Hasher hasher = new RequestDeduplicator.Hasher();
+        hasher.put("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII));
+        RequestDeduplicator.Fingerprint fingerprint = hasher.finish();
+
+        assertEquals("6c1b07bc7bbc4be3", String.format("%016x", Long.reverseBytes(fingerprint.high)));
+        assertEquals("47939ac4a93c437a", String.format("%016x", Long.reverseBytes(fingerprint.low)));
+        assertEquals(new RequestDeduplicator.Fingerprint(0, 0), new RequestDeduplicator.Hasher().finish());
+    }
+
+    private String fingerprint(String command) {
+        CurlParser.CurlRequest request = CurlParser.parseCurlCommand(command);
+        assertNotNull(request, command);
+        return deduplicator.fingerprint(request).toString();
+    }
+}
@@ -0,0 +1,210 @@
+package burp;
+
+import burp.api.montoya.http.message.HttpHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHistoryTest {
+
+    private final MemoryStore store = new MemoryStore();
+
+    @Test
+    public void roundTripKeepsEveryPart() {
+        RequestHistory history = new RequestHistory(store, 100, true);
+        byte[] body = "a=1&b=2".getBytes(StandardCharsets.UTF_8);
+        history.add(entry(1000, "POST", "/submit?x=1", List.of(
+                HttpHeaderImpl.of("Host", "example.com"),
+                HttpHeaderImpl.of("content-type", "application/x-www-form-urlencoded"),
+                HttpHeaderImpl.of("X-Custom", "café")), body));
+
+        List<RequestHistory.Summary> summaries = new RequestHistory(store, 100, true).summaries();
+        assertEquals(1, summaries.size());
+        RequestHistory.Summary summary = summaries.get(0);
+        assertEquals(1000, summary.time);
+        assertEquals("POST", summary.method);
+        assertEquals("https://example.com/submit?x=1", summary.url);
+        assertEquals(body.length, summary.bodyLength);
+
+        RequestHistory.Entry entry = history.open(summary);
+        assertNotNull(entry);
+        assertTrue(entry.secure);
+        assertEquals("example.com", entry.host);
+        assertEquals(443, entry.port);
+        assertEquals("HTTP/1.1", entry.httpVersion);
+        assertEquals(List.of("Host", "content-type", "X-Custom"), names(entry.headers));
+        assertEquals("café", entry.headers.get(2).value());
+        assertArrayEquals(body, entry.body);
+        assertEquals("POST /submit?x=1 HTTP/1.1\r\nHost: example.com\r\ncontent-type: application/x-www-form-urlencoded\r\n"
+                + "X-Custom: café\r\n\r\na=1&b=2", new String(entry.toBytes(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void encodingIsCompact() {
+        RequestHistory history = new RequestHistory(store, 100, true);
+        List<HttpHeader> headers = List.of(HttpHeaderImpl.of("Host", "example.com"), HttpHeaderImpl.of("Accept", "*/*"),
+                HttpHeaderImpl.of("User-Agent", "x"), HttpHeaderImpl.of("accept-language", "en"));
+        byte[] body = "{\"items\":[1,2,3,4,5,6,7,8]}".repeat(200).getBytes(StandardCharsets.UTF_8);
+        RequestHistory.Entry entry = entry(0, "POST", "/api", headers, body);
+
+        byte[] encoded = history.encode(entry);
+        assertTrue(encoded.length < body.length / 10, "encoded " + encoded.length + " bytes");
+        assertArrayEquals(body, RequestHistory.decode(encoded).body);
+        assertEquals(names(headers), names(RequestHistory.decode(encoded).headers));
+
+        byte[] uncompressed = new RequestHistory(store, 100, false).encode(entry);
+        assertTrue(uncompressed.length > body.length && uncompressed.length < body.length + 100);
+        // Known header names take one byte each instead of their text
+        byte[] known = history.encode(entry(0, "GET", "/", headers, new byte[0]));
+        byte[] unknown = history.encode(entry(0, "GET", "/", List.of(HttpHeaderImpl.of("Hxst", "example.com"),
+                HttpHeaderImpl.of("Axxxxx", "*/*"), HttpHeaderImpl.of("Uxxx-Agent", "x"),
+                HttpHeaderImpl.of("axxxxx-language", "en")), new byte[0]));
+        assertEquals(unknown.length - "HostAcceptUser-Agentaccept-language".length() - 4, known.length);
+    }
+
+    @Test
+    public void dropsOldestPastLimitAndListsNewestFirst() {
+        RequestHistory history = new RequestHistory(store, 100, true);
+        for (int i = 0; i < 250; i++) {
+            history.add(entry(i, "GET", "/" + i, List.of(), new byte[0]));
+        }
+
+        List<RequestHistory.Summary> summaries = new RequestHistory(store, 100, true).summaries();
+        assertEquals(100, summaries.size());
+        assertEquals("https://example.com/249", summaries.get(0).url);
+        assertEquals("https://example.com/150", summaries.get(99).url);
+        assertEquals(100, history.size());
+        // 100 entries, their index segments and the header; older keys are removed
+        assertTrue(store.data.size() <= 100 + 100 / RequestHistory.SEGMENT_SIZE + 2 + 1, "keys " + store.data.size());
+        assertNull(store.data.get(RequestHistory.KEY + ".149"));
+    }
+
+    @Test
+    public void readsNothingUntilFirstUsed() {
+        RequestHistory history = new RequestHistory(store, 1000, true);
+        for (int i = 0; i < 300; i++) {
+            history.add(entry(i, "GET", "/" + i, List.of(HttpHeaderImpl.of("Host", "example.com")), new byte[100]));
+        }
+        store.reads.clear();
+
+        RequestHistory reopened = new RequestHistory(store, 1000, true);
+        assertTrue(store.reads.isEmpty());
+
+        List<RequestHistory.Summary> summaries = reopened.summaries();
+        assertEquals(300, summaries.size());
+        for (String key : store.reads) {
+            assertTrue(key.equals(RequestHistory.KEY) || key.startsWith(RequestHistory.KEY + ".index."), key);
+        }
+
+        store.reads.clear();
+        RequestHistory.Entry entry = reopened.open(summaries.get(5));
+        assertEquals("/294", entry.path);
+        assertEquals(List.of(RequestHistory.KEY + ".294"), store.reads);
+
+        reopened.add(entry(300, "GET", "/300", List.of(), new byte[0]));
+        assertEquals(301, new RequestHistory(store, 1000, true).summaries().size());
+    }
+
+    @Test
+    public void damagedDataIsSkipped() {
+        RequestHistory history = new RequestHistory(store, 100, true);
+        history.add(entry(1, "GET", "/a", List.of(), new byte[0]));
+        history.add(entry(2, "GET", "/b", List.of(), new byte[0]));
+        store.data.put(RequestHistory.KEY + ".1", new byte[]{1, 5});
+
+        List<RequestHistory.Summary> summaries = history.summaries();
+        assertNull(history.open(summaries.get(0)));
+        assertNotNull(history.open(summaries.get(1)));
+
+        store.data.put(RequestHistory.KEY, new byte[]{(byte) 0xff});
+        RequestHistory reset = new RequestHistory(store, 100, true);
+        assertEquals(0, reset.size());
+        reset.add(entry(3, "GET", "/c", List.of(), new byte[0]));
+        assertEquals(1, reset.summaries().size());
+    }
+
+    @Test
+    public void zeroLimitStoresNothing() {
+        RequestHistory history = new RequestHistory(store, 0, true);
+        history.add(entry(1, "GET", "/a", List.of(), new byte[0]));
+
+        assertFalse(history.isEnabled());
+        assertTrue(history.summaries().isEmpty());
+        assertTrue(store.data.isEmpty());
+    }
+
+    @Test
+    public void bodiesOverTheLimitAreStoredAsTheirLengthOnly() {
+        RequestHistory history = new RequestHistory(store, 100, 16, true);
+        byte[] small = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        byte[] large = "x".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        history.add(entry(1, "POST", "/small", List.of(), small));
+        history.add(entry(2, "POST", "/large", List.of(), large));
+        // Callers that skipped copying a large body pass only its length
+        history.add(new RequestHistory.Entry(3, true, "example.com", 443, "PUT", "/upload", "HTTP/1.1", List.of(),
+                RequestHistory.NO_BODY, 5_000_000));
+
+        assertTrue(history.keepsBody(16));
+        assertFalse(history.keepsBody(17));
+        List<RequestHistory.Summary> summaries = new RequestHistory(store, 100, 16, true).summaries();
+        assertEquals(List.of(5_000_000L, 10_000L, 16L),
+                List.of(summaries.get(0).bodyLength, summaries.get(1).bodyLength, summaries.get(2).bodyLength));
+
+        RequestHistory.Entry upload = history.open(summaries.get(0));
+        assertTrue(upload.isBodyOmitted());
+        assertEquals(0, upload.body.length);
+        assertEquals(5_000_000, upload.bodyLength);
+
+        RequestHistory.Entry omitted = history.open(summaries.get(1));
+        assertTrue(omitted.isBodyOmitted());
+        assertEquals(0, omitted.body.length);
+        assertEquals(10_000, omitted.bodyLength);
+        assertTrue(store.data.get(RequestHistory.KEY + "." + summaries.get(1).id).length < 100);
+        assertEquals("POST /large HTTP/1.1\r\n\r\n", new String(omitted.toBytes(), StandardCharsets.ISO_8859_1));
+
+        RequestHistory.Entry kept = history.open(summaries.get(2));
+        assertFalse(kept.isBodyOmitted());
+        assertArrayEquals(small, kept.body);
+    }
+
+    private static RequestHistory.Entry entry(long time, String method, String path, List<HttpHeader> headers, byte[] body) {
+        return new RequestHistory.Entry(time, true, "example.com", 443, method, path, "HTTP/1.1", headers, body);
+    }
+
+    private static List<String> names(List<HttpHeader> headers) {
+        List<String> names = new ArrayList<>();
+        for (HttpHeader header : headers) {
+            names.add(header.name());
+        }
+        return names;
+    }
+
+    private static final class MemoryStore implements RequestHistory.Store {
+        final Map<String, byte[]> data = new HashMap<>();
+        final List<String> reads = new ArrayList<>();
+
+        @Override
+        public byte[] get(String key) {
+            reads.add(key);
+            byte[] value = data.get(key);
+            return value == null ? null : Arrays.copyOf(value, value.length);
+        }
+
+        @Override
+        public void put(String key, byte[] value) {
+            data.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            data.remove(key);
+        }
+    }
+}
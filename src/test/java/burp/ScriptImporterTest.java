@@ -0,0 +1,157 @@
+package burp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void findScriptsSkipsHiddenDirectoriesAndOtherFiles() throws IOException {
+        Files.createDirectories(dir.resolve("api/.git"));
+        Path script = Files.writeString(dir.resolve("api/requests.sh"), "curl https://example.com");
+        Path noExtension = Files.writeString(dir.resolve("api/login"), "curl https://example.com/login");
+        Files.writeString(dir.resolve("api/.git/config.sh"), "curl https://example.com/git");
+        Files.writeString(dir.resolve("api/logo.png"), "not a script");
+        Path chosen = Files.writeString(dir.resolve("chosen.json"), "curl https://example.com/chosen");
+
+        List<Path> scripts = ScriptImporter.findScripts(List.of(dir.resolve("api"), chosen));
+        Collections.sort(scripts);
+
+        List<Path> expected = new ArrayList<>(List.of(script, noExtension, chosen));
+        Collections.sort(expected);
+        assertEquals(expected, scripts);
+    }
+
+    @Test
+    public void importScriptsCollectsAllCommandsAndFailures() throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (int file = 0; file < 20; file++) {
+            StringBuilder script = new StringBuilder("#!/bin/sh\n");
+            for (int i = 0; i < 50; i++) {
+                script.append("curl 'https://example.com/").append(file).append('/').append(i)
+                        .append("' \\\n  -H 'X-Test: ").append(i).append("'\n");
+            }
+            scripts.add(Files.writeString(dir.resolve("script" + file + ".sh"), script));
+        }
+        scripts.add(Files.writeString(dir.resolve("broken.sh"), "curl 'https://example.com/ok'\ncurl -X\n"));
+
+        // A tiny queue makes the parser tasks wait on the consumer
+        ScriptImporter<String> importer = new ScriptImporter<>(pool, CurlParser.CurlRequest::getPath, 2);
+        List<String> paths = new ArrayList<>();
+        importer.importScripts(scripts, paths::add, () -> { });
+
+        assertEquals(21, importer.getFiles());
+        assertEquals(1002, importer.getCommands());
+        assertEquals(1001, importer.getImported());
+        assertEquals(1001, paths.size());
+        assertTrue(paths.contains("/19/49"));
+        assertTrue(paths.contains("/ok"));
+        assertEquals(1, importer.getFailed());
+        assertTrue(importer.describeFailures().contains("broken.sh: command 2"));
+    }
+
+    @Test
+    public void unreadableScriptIsReportedAsFailure() throws IOException {
+        Path script = Files.writeString(dir.resolve("ok.sh"), "curl https://example.com/a");
+        Path missing = dir.resolve("missing.sh");
+
+        ScriptImporter<String> importer = new ScriptImporter<>(pool, CurlParser.CurlRequest::getPath);
+        List<String> paths = new ArrayList<>();
+        importer.importScripts(List.of(script, missing), paths::add, () -> { });
+
+        assertEquals(List.of("/a"), paths);
+        assertEquals(1, importer.getFailed());
+        assertTrue(importer.describeFailures().contains("missing.sh"));
+    }
+
+    @Test
+    public void importScriptsWithWindowsLineEndings() throws IOException {
+        Path script = Files.writeString(dir.resolve("crlf.sh"),
+                "curl 'https://example.com/a' \\\r\n  -H 'X-Test: 1' \\\r\n  --data-raw 'x=1'\r\n"
+                        + "curl 'https://example.com/b'\r\n");
+
+        ScriptImporter<String> importer = new ScriptImporter<>(pool, request -> request.getPath() + " " + request.getBody());
+        List<String> imported = new ArrayList<>();
+        importer.importScripts(List.of(script), imported::add, () -> { });
+
+        Collections.sort(imported);
+        assertEquals(List.of("/a x=1", "/b "), imported);
+        assertEquals(0, importer.getFailed());
+    }
+
+    @Test
+    public void commentsWithApostrophesAndRelativeFilesInScripts() throws IOException {
+        Path scripts = Files.createDirectories(dir.resolve("scripts"));
+        Files.writeString(scripts.resolve("payload.json"), "{\"user\":\"alice\"}");
+        Path script = Files.writeString(scripts.resolve("login.sh"),
+                "#!/bin/sh\n# Here's the login request\ncurl https://example.com/login -d @payload.json\n"
+                        + "# and the other one's here\ncurl https://example.com/logout\n");
+
+        ScriptImporter<String> importer = new ScriptImporter<>(pool, request -> request.getPath() + " " + request.getBody());
+        List<String> imported = new ArrayList<>();
+        importer.importScripts(List.of(script), imported::add, () -> { });
+
+        Collections.sort(imported);
+        assertEquals(List.of("/login {\"user\":\"alice\"}", "/logout "), imported);
+        assertEquals(2, importer.getCommands());
+        assertEquals(0, importer.getFailed());
+    }
+
+    @Test
+    public void batchAndPowerShellScriptsAreReportedAsUnsupported() throws IOException {
+        Path batch = Files.writeString(dir.resolve("requests.bat"), "curl ^\r\n  https://example.com/a\r\n");
+        Path powerShell = Files.writeString(dir.resolve("requests.ps1"), "curl.exe `\n  https://example.com/b\n");
+        Path shell = Files.writeString(dir.resolve("requests.sh"), "curl https://example.com/c\n");
+
+        assertEquals(List.of(shell), ScriptImporter.findScripts(List.of(dir)));
+
+        ScriptImporter<String> importer = new ScriptImporter<>(pool, CurlParser.CurlRequest::getPath);
+        List<String> paths = new ArrayList<>();
+        importer.importScripts(List.of(batch, powerShell), paths::add, () -> { });
+
+        assertTrue(paths.isEmpty());
+        assertEquals(2, importer.getFailed());
+        assertTrue(importer.describeFailures().contains("requests.bat: batch and PowerShell scripts are not supported"));
+    }
+
+    @Test
+    public void importStopsWhenPoolIsShutDown() throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (int file = 0; file < 10; file++) {
+            scripts.add(Files.writeString(dir.resolve("script" + file + ".sh"),
+                    "curl https://example.com/" + file + "/a\ncurl https://example.com/" + file + "/b\n"));
+        }
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ScriptImporter<String> importer = new ScriptImporter<>(single, CurlParser.CurlRequest::getPath, 1);
+
+        // Shutting the pool down drops the queued files, which then never report back
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(InterruptedIOException.class,
+                () -> importer.importScripts(scripts, path -> single.shutdownNow(), () -> { })));
+        assertTrue(importer.isCancelled());
+    }
+}